@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.camel.util.IOHelper;
+
+/**
+ * The corpus of expressions used by the benchmarks, which is loaded from the classpath.
+ */
+public final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * The templates to be used as expressions
+     */
+    public static String[] templates() {
+        return load("templates.txt");
+    }
+
+    /**
+     * The predicates
+     */
+    public static String[] predicates() {
+        return load("predicates.txt");
+    }
+
+    private static String[] load(String name) {
+        InputStream is = Corpus.class.getClassLoader().getResourceAsStream(name);
+        if (is == null) {
+            throw new IllegalArgumentException("Cannot find corpus " + name + " on the classpath");
+        }
+        List<String> answer = new ArrayList<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // skip comments and empty lines
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    answer.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading corpus " + name, e);
+        } finally {
+            IOHelper.close(reader, name);
+            IOHelper.close(is, name);
+        }
+        return answer.toArray(new String[answer.size()]);
+    }
+
+}
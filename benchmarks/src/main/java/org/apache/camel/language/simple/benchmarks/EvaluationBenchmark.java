@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.language.simple.SimpleExpressionParser;
+import org.apache.camel.language.simple.SimplePredicateParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks evaluating compiled expressions and predicates against an exchange.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+
+    private final Expression[] templates = createExpressions(Corpus.templates());
+    private final Predicate[] predicates = createPredicates(Corpus.predicates());
+
+    private final Expression template = createExpression("${header.customer}-${header.order}/${date:now:yyyyMMdd}/${file:name}");
+    private final Predicate equal = createPredicate("${header.region} == 'eu'");
+    private final Predicate regex = createPredicate("${header.customer} regex '^[A-Z][a-z]+ [A-Z][a-z]+$'");
+    private final Predicate in = createPredicate("${header.region} in 'eu,us,apac,latam,mea'");
+    private final Predicate range = createPredicate("${header.amount} range '100..5000'");
+    private final Predicate and = createPredicate("${header.region} == 'eu' && ${header.amount} > 100 && ${header.priority} == 1");
+    private final Predicate or = createPredicate("${header.region} == 'us' || ${header.region} == 'apac' || ${header.region} == 'eu'");
+
+    private final Expression compiledTemplate = new SimpleExpressionParser(
+            "${header.customer}-${header.order}/${date:now:yyyyMMdd}/${file:name}", true).parseExpression();
+    private final Predicate compiledAnd = new SimplePredicateParser(
+            "${header.region} == 'eu' && ${header.amount} > 100 && ${header.priority} == 1", true).parsePredicate();
+    private final Predicate compiledOr = new SimplePredicateParser(
+            "${header.region} == 'us' || ${header.region} == 'apac' || ${header.region} == 'eu'", true).parsePredicate();
+
+    @Benchmark
+    public String evaluateTemplate(ExchangeState state) {
+        return template.evaluate(state.exchange, String.class);
+    }
+
+    @Benchmark
+    public boolean evaluateEqual(ExchangeState state) {
+        return equal.matches(state.exchange);
+    }
+
+    @Benchmark
+    public boolean evaluateRegex(ExchangeState state) {
+        return regex.matches(state.exchange);
+    }
+
+    @Benchmark
+    public boolean evaluateIn(ExchangeState state) {
+        return in.matches(state.exchange);
+    }
+
+    @Benchmark
+    public boolean evaluateRange(ExchangeState state) {
+        return range.matches(state.exchange);
+    }
+
+    @Benchmark
+    public boolean evaluateAnd(ExchangeState state) {
+        return and.matches(state.exchange);
+    }
+
+    @Benchmark
+    public boolean evaluateOr(ExchangeState state) {
+        return or.matches(state.exchange);
+    }
+
+    @Benchmark
+    public String evaluateCompiledTemplate(ExchangeState state) {
+        return compiledTemplate.evaluate(state.exchange, String.class);
+    }
+
+    @Benchmark
+    public boolean evaluateCompiledAnd(ExchangeState state) {
+        return compiledAnd.matches(state.exchange);
+    }
+
+    @Benchmark
+    public boolean evaluateCompiledOr(ExchangeState state) {
+        return compiledOr.matches(state.exchange);
+    }
+
+    @Benchmark
+    public void evaluateTemplateCorpus(ExchangeState state, Blackhole blackhole) {
+        for (Expression expression : templates) {
+            blackhole.consume(expression.evaluate(state.exchange, String.class));
+        }
+    }
+
+    @Benchmark
+    public void evaluatePredicateCorpus(ExchangeState state, Blackhole blackhole) {
+        for (Predicate predicate : predicates) {
+            blackhole.consume(predicate.matches(state.exchange));
+        }
+    }
+
+    private static Expression createExpression(String text) {
+        return new SimpleExpressionParser(text).parseExpression();
+    }
+
+    private static Predicate createPredicate(String text) {
+        return new SimplePredicateParser(text).parsePredicate();
+    }
+
+    private static Expression[] createExpressions(String[] texts) {
+        Expression[] answer = new Expression[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            answer[i] = createExpression(texts[i]);
+        }
+        return answer;
+    }
+
+    private static Predicate[] createPredicates(String[] texts) {
+        Predicate[] answer = new Predicate[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            answer[i] = createPredicate(texts[i]);
+        }
+        return answer;
+    }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.benchmarks;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A started {@link CamelContext} with an {@link Exchange} which has the body and headers
+ * used by the expressions in the corpus.
+ */
+@State(Scope.Thread)
+public class ExchangeState {
+
+    public CamelContext context;
+    public Exchange exchange;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new DefaultCamelContext();
+        context.start();
+
+        exchange = new DefaultExchange(context);
+        exchange.getIn().setBody("This is an urgent order from a very important customer");
+        exchange.getIn().setHeader("customer", "Claus Ibsen");
+        exchange.getIn().setHeader("order", "ORD-123456");
+        exchange.getIn().setHeader("amount", 1234);
+        exchange.getIn().setHeader("region", "eu");
+        exchange.getIn().setHeader("priority", 1);
+        exchange.getIn().setHeader(Exchange.FILE_NAME, "orders/order-123456.xml");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        context.stop();
+    }
+
+}
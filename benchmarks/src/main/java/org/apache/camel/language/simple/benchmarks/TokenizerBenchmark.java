@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.language.simple.SimpleToken;
+import org.apache.camel.language.simple.SimpleTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the {@link SimpleTokenizer} by tokenizing all the expressions in the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private final String[] templates = Corpus.templates();
+    private final String[] predicates = Corpus.predicates();
+
+    @Benchmark
+    public void tokenizeTemplates(Blackhole blackhole) {
+        tokenize(templates, blackhole);
+    }
+
+    @Benchmark
+    public void tokenizePredicates(Blackhole blackhole) {
+        tokenize(predicates, blackhole);
+    }
+
+    private static void tokenize(String[] expressions, Blackhole blackhole) {
+        for (String expression : expressions) {
+            int index = 0;
+            while (index < expression.length()) {
+                SimpleToken token = SimpleTokenizer.nextToken(expression, index);
+                blackhole.consume(token);
+                index += token.getLength();
+            }
+        }
+    }
+
+}
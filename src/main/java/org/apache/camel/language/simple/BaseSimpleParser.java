@@ -16,9 +16,10 @@
  */
 package org.apache.camel.language.simple;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Stack;
 
 import org.apache.camel.language.simple.ast.Block;
 import org.apache.camel.language.simple.ast.BlockEnd;
@@ -34,15 +35,39 @@ import org.apache.camel.language.simple.ast.UnaryExpression;
  */
 public abstract class BaseSimpleParser {
 
+    // the eol token type has no state so it can be shared
+    private static final SimpleTokenType EOL = new SimpleTokenType(TokenType.eol, null);
+
     protected final String expression;
-    protected final List<SimpleToken> tokens = new ArrayList<SimpleToken>();
+    protected final SimpleTokenStream tokens;
     protected final List<SimpleNode> nodes = new ArrayList<SimpleNode>();
-    protected SimpleToken token;
+    // the current token, which is kept as its type and position instead of as a token
+    protected SimpleTokenType token;
+    protected int tokenIndex;
     protected int previousIndex;
     protected int index;
+    // whether to cache the formatted value of the date:now functions
+    private boolean cacheDateNow;
 
     protected BaseSimpleParser(String expression) {
         this.expression = expression;
+        this.tokens = new SimpleTokenStream(expression);
+    }
+
+    public boolean isCacheDateNow() {
+        return cacheDateNow;
+    }
+
+    /**
+     * Whether the formatted value of the <tt>${date:now:pattern}</tt> functions should be cached, so the value
+     * is only formatted again when the second changes, or the millisecond if the pattern includes the milliseconds.
+     * This is disabled by default.
+     *
+     * @param cacheDateNow <tt>true</tt> to cache the formatted value
+     * @see org.apache.camel.language.simple.ast.CachedDateExpression
+     */
+    public void setCacheDateNow(boolean cacheDateNow) {
+        this.cacheDateNow = cacheDateNow;
     }
 
     /**
@@ -50,18 +75,7 @@ public abstract class BaseSimpleParser {
      * in the input.
      */
     protected void nextToken() {
-        if (index < expression.length()) {
-            SimpleToken next = SimpleTokenizer.nextToken(expression, index);
-            // add token
-            tokens.add(next);
-            token = next;
-            // position index after the token
-            previousIndex = index;
-            index += next.getLength();
-        } else {
-            // end of tokens
-            token = new SimpleToken(new SimpleTokenType(TokenType.eol, null), index);
-        }
+        doNextToken(null);
     }
 
     /**
@@ -71,18 +85,42 @@ public abstract class BaseSimpleParser {
      * @param filter filter for accepted token types
      */
     protected void nextToken(TokenType... filter) {
+        doNextToken(filter);
+    }
+
+    private void doNextToken(TokenType[] filter) {
         if (index < expression.length()) {
-            SimpleToken next = SimpleTokenizer.nextToken(expression, index, filter);
             // add token
-            tokens.add(next);
-            token = next;
+            int length = SimpleTokenizer.nextToken(expression, index, tokens, filter);
+            token = tokens.getType(tokens.size() - 1);
+            tokenIndex = index;
             // position index after the token
             previousIndex = index;
-            index += next.getLength();
+            index += length;
         } else {
             // end of tokens
-            token = new SimpleToken(new SimpleTokenType(TokenType.eol, null), index);
+            eolToken();
+        }
+    }
+
+    private void eolToken() {
+        if (token != null && token.getType() == TokenType.character) {
+            // a character token can hold many characters, so the previous index is the last character
+            previousIndex = index - 1;
+        }
+        token = EOL;
+        tokenIndex = index;
+    }
+
+    /**
+     * Gets the text of the current token.
+     */
+    protected String tokenText() {
+        if (token.getValue() != null || token.isEol()) {
+            return token.getValue();
         }
+        // the text of the current token is taken from the input
+        return tokens.getText(tokens.size() - 1);
     }
 
     /**
@@ -90,6 +128,7 @@ public abstract class BaseSimpleParser {
      */
     protected void clear() {
         token = null;
+        tokenIndex = 0;
         previousIndex = 0;
         index = 0;
         tokens.clear();
@@ -109,7 +148,7 @@ public abstract class BaseSimpleParser {
      */
     protected void prepareBlocks() {
         List<SimpleNode> answer = new ArrayList<SimpleNode>();
-        Stack<Block> stack = new Stack<Block>();
+        Deque<Block> stack = new ArrayDeque<Block>();
 
         for (SimpleNode token : nodes) {
             if (token instanceof BlockStart) {
@@ -153,7 +192,8 @@ public abstract class BaseSimpleParser {
      * graph of nodes which represent the input expression.
      */
     protected void prepareUnaryExpressions() {
-        Stack<SimpleNode> stack = new Stack<SimpleNode>();
+        // use a list as stack, as the nodes is added back in the same order
+        List<SimpleNode> stack = new ArrayList<SimpleNode>(nodes.size());
 
         for (SimpleNode node : nodes) {
             if (node instanceof UnaryExpression) {
@@ -162,14 +202,14 @@ public abstract class BaseSimpleParser {
                 // remember the logical operator
                 String operator = token.getOperator().toString();
 
-                SimpleNode previous = stack.isEmpty() ? null : stack.pop();
+                SimpleNode previous = stack.isEmpty() ? null : stack.remove(stack.size() - 1);
                 if (previous == null) {
                     throw new SimpleParserException("Unary operator " + operator + " has no left hand side token", token.getToken().getIndex());
                 } else {
                     token.acceptLeft(previous);
                 }
             }
-            stack.push(node);
+            stack.add(node);
         }
 
         // replace nodes from the stack
@@ -191,7 +231,7 @@ public abstract class BaseSimpleParser {
      * @return <tt>true</tt> if accepted, <tt>false</tt> otherwise.
      */
     protected boolean accept(TokenType accept) {
-        if (token == null || token.getType().getType() == accept) {
+        if (token == null || token.getType() == accept) {
             return true;
         } else {
             return false;
@@ -205,14 +245,14 @@ public abstract class BaseSimpleParser {
      * @throws SimpleParserException is thrown if the token is not as expected
      */
     protected void expect(TokenType expect) throws SimpleParserException {
-        if (token != null && token.getType().getType() == expect) {
+        if (token != null && token.getType() == expect) {
             return;
         } else if (token == null) {
             // use the previous index as that is where the problem is
             throw new SimpleParserException("expected symbol " + expect + " but reached eol", previousIndex);
         } else {
             // use the previous index as that is where the problem is
-            throw new SimpleParserException("expected symbol " + expect + " but was " + token.getType().getType(), previousIndex);
+            throw new SimpleParserException("expected symbol " + expect + " but was " + token.getType(), previousIndex);
         }
     }
 
@@ -226,7 +266,7 @@ public abstract class BaseSimpleParser {
     protected void expectAndAcceptMore(TokenType expect) {
         expect(expect);
 
-        while (!token.getType().isEol() && token.getType().getType() == expect) {
+        while (!token.isEol() && token.getType() == expect) {
             nextToken();
         }
     }
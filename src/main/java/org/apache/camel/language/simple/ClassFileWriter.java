@@ -0,0 +1,283 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer of Java class files, which supports the few constructs needed by the {@link SimpleCompiler}.
+ * <p/>
+ * The class files is written in the Java 5 format, which is verified without stack map frames, so the
+ * bytecode can be written without computing the frames.
+ */
+final class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    // opcodes
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_1 = 0x04;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int ALOAD_0 = 0x2a;
+    static final int ALOAD_1 = 0x2b;
+    static final int ALOAD_2 = 0x2c;
+    static final int AALOAD = 0x32;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IRETURN = 0xac;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int CHECKCAST = 0xc0;
+    static final int IFNONNULL = 0xc7;
+
+    private static final int VERSION = 49;
+
+    // constant pool tags
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> constants = new HashMap<String, Integer>();
+    private int poolCount = 1;
+    private final List<byte[]> fields = new ArrayList<byte[]>();
+    private final List<byte[]> methods = new ArrayList<byte[]>();
+
+    int utf8(String value) throws IOException {
+        String key = "U" + value;
+        Integer index = constants.get(key);
+        if (index == null) {
+            poolOut.writeByte(CONSTANT_UTF8);
+            // the class file uses the same modified utf-8 encoding as data output
+            poolOut.writeUTF(value);
+            index = add(key);
+        }
+        return index;
+    }
+
+    int classRef(String internalName) throws IOException {
+        return reference("C" + internalName, CONSTANT_CLASS, utf8(internalName), -1);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) throws IOException {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) throws IOException {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) throws IOException {
+        return memberRef(CONSTANT_INTERFACE_METHODREF, owner, name, descriptor);
+    }
+
+    void addField(int access, String name, String descriptor) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(access);
+        out.writeShort(utf8(name));
+        out.writeShort(utf8(descriptor));
+        // no attributes
+        out.writeShort(0);
+        fields.add(bytes.toByteArray());
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) throws IOException {
+        byte[] instructions = code.toByteArray();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(access);
+        out.writeShort(utf8(name));
+        out.writeShort(utf8(descriptor));
+        // the code attribute
+        out.writeShort(1);
+        out.writeShort(utf8("Code"));
+        out.writeInt(12 + instructions.length);
+        out.writeShort(code.maxStack);
+        out.writeShort(code.maxLocals);
+        out.writeInt(instructions.length);
+        out.write(instructions);
+        // no exception table and no attributes
+        out.writeShort(0);
+        out.writeShort(0);
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray(int access, String name, String superName, String... interfaces) throws IOException {
+        // add the constants of the class before writing the constant pool
+        int thisIndex = classRef(name);
+        int superIndex = classRef(superName);
+        int[] interfaceIndexes = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            interfaceIndexes[i] = classRef(interfaces[i]);
+        }
+        if (poolCount > 0xffff) {
+            throw new IllegalStateException("Too many constants in class " + name);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xcafebabe);
+        out.writeShort(0);
+        out.writeShort(VERSION);
+        out.writeShort(poolCount);
+        poolOut.flush();
+        pool.writeTo(out);
+        out.writeShort(access);
+        out.writeShort(thisIndex);
+        out.writeShort(superIndex);
+        out.writeShort(interfaceIndexes.length);
+        for (int index : interfaceIndexes) {
+            out.writeShort(index);
+        }
+        out.writeShort(fields.size());
+        for (byte[] field : fields) {
+            out.write(field);
+        }
+        out.writeShort(methods.size());
+        for (byte[] method : methods) {
+            out.write(method);
+        }
+        // no attributes
+        out.writeShort(0);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+        int nameAndType = reference("N" + name + " " + descriptor, CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor));
+        return reference(tag + owner + " " + name + " " + descriptor, tag, classRef(owner), nameAndType);
+    }
+
+    private int reference(String key, int tag, int first, int second) throws IOException {
+        Integer index = constants.get(key);
+        if (index == null) {
+            poolOut.writeByte(tag);
+            poolOut.writeShort(first);
+            if (second >= 0) {
+                poolOut.writeShort(second);
+            }
+            index = add(key);
+        }
+        return index;
+    }
+
+    private int add(String key) {
+        int index = poolCount++;
+        constants.put(key, index);
+        return index;
+    }
+
+    /**
+     * The bytecode of a method.
+     */
+    static final class Code {
+
+        private final int maxStack;
+        private final int maxLocals;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<Jump> jumps = new ArrayList<Jump>();
+
+        Code(int maxStack, int maxLocals) {
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        void op(int opcode) {
+            bytes.write(opcode);
+        }
+
+        void op(int opcode, int operand) {
+            bytes.write(opcode);
+            bytes.write(operand >> 8);
+            bytes.write(operand);
+        }
+
+        void invokeInterface(int index, int argumentCount) {
+            op(INVOKEINTERFACE, index);
+            // the count includes the target object
+            bytes.write(argumentCount + 1);
+            bytes.write(0);
+        }
+
+        void jump(int opcode, Label label) {
+            jumps.add(new Jump(bytes.size(), label));
+            op(opcode, 0);
+        }
+
+        void mark(Label label) {
+            label.position = bytes.size();
+        }
+
+        byte[] toByteArray() {
+            byte[] answer = bytes.toByteArray();
+            if (answer.length > 0xffff) {
+                throw new IllegalStateException("Method is too large");
+            }
+            for (Jump jump : jumps) {
+                int offset = jump.label.position - jump.position;
+                if (jump.label.position < 0 || offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Cannot jump to label at " + jump.label.position);
+                }
+                answer[jump.position + 1] = (byte) (offset >> 8);
+                answer[jump.position + 2] = (byte) offset;
+            }
+            return answer;
+        }
+    }
+
+    /**
+     * A position in the bytecode to jump to.
+     */
+    static final class Label {
+
+        private int position = -1;
+    }
+
+    private static final class Jump {
+
+        private final int position;
+        private final Label label;
+
+        private Jump(int position, Label label) {
+            this.position = position;
+            this.label = label;
+        }
+    }
+
+}
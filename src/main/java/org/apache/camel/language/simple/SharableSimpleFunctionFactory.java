@@ -0,0 +1,30 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+/**
+ * A {@link SimpleFunctionFactory} which creates functions that return the same value when evaluated again with the
+ * same {@link org.apache.camel.Exchange}, and which has no side effects, such as reading a header of the message.
+ * <p/>
+ * When such a function is used more than once in the same predicate, its value is shared, so the function is
+ * only evaluated once per evaluation of the predicate. The functions of any other factory is evaluated every time.
+ *
+ * @see SimpleFunctionRegistry
+ */
+public interface SharableSimpleFunctionFactory extends SimpleFunctionFactory {
+
+}
@@ -16,10 +16,17 @@
  */
 package org.apache.camel.language.simple;
 
+import java.util.Collections;
+
+import org.apache.camel.CamelContext;
 import org.apache.camel.Expression;
 import org.apache.camel.IsSingleton;
 import org.apache.camel.Predicate;
 import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.language.simple.ast.CachedDateExpression;
+import org.apache.camel.language.simple.ast.ConstantFolder;
+import org.apache.camel.language.simple.ast.LogicalReorderer;
+import org.apache.camel.language.simple.ast.SimpleFunctionExpression;
 import org.apache.camel.spi.Language;
 import org.apache.camel.util.ObjectHelper;
 
@@ -93,7 +100,21 @@ public class Simple2Language implements Language, IsSingleton {
     // singleton for expressions without a result type
     private static final SimpleLanguage SIMPLE = new SimpleLanguage();
 
+    // cache of compiled expressions and predicates which is shared as this language is not a singleton
+    private static final SimpleExpressionCache CACHE = new SimpleExpressionCache();
+
+    // the options which affects how the predicates and expressions is parsed, as a bit mask in the cache key
+    private static final int FOLD_STATIC_FUNCTIONS = 1;
+    private static final int REORDER_LOGICAL_OPERANDS = 2;
+    private static final int ADAPTIVE_LOGICAL_OPERANDS = 4;
+    private static final int CACHE_DATE_NOW = 8;
+
     private Class<?> resultType;
+    private boolean compiled;
+    private boolean foldStaticFunctions;
+    private boolean reorderLogicalOperands;
+    private boolean adaptiveLogicalOperands;
+    private boolean cacheDateNow;
 
     public Class<?> getResultType() {
         return resultType;
@@ -103,6 +124,83 @@ public class Simple2Language implements Language, IsSingleton {
         this.resultType = resultType;
     }
 
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Whether the predicates created by this language should be compiled into generated classes.
+     * This is disabled by default. The expressions is not compiled.
+     *
+     * @param compiled <tt>true</tt> to compile the predicates, which falls back to the
+     *                 interpreted predicates if they cannot be compiled
+     * @see SimpleCompiler
+     */
+    public void setCompiled(boolean compiled) {
+        this.compiled = compiled;
+    }
+
+    public boolean isFoldStaticFunctions() {
+        return foldStaticFunctions;
+    }
+
+    /**
+     * Whether the <tt>sys.</tt> and <tt>sysenv.</tt> functions should be regarded as static, and be folded
+     * into constant values when predicates are parsed. This is disabled by default.
+     *
+     * @param foldStaticFunctions <tt>true</tt> if the system properties and environment is not changed at runtime
+     * @see ConstantFolder
+     */
+    public void setFoldStaticFunctions(boolean foldStaticFunctions) {
+        this.foldStaticFunctions = foldStaticFunctions;
+    }
+
+    public boolean isReorderLogicalOperands() {
+        return reorderLogicalOperands;
+    }
+
+    /**
+     * Whether the operands of the logical operators should be reordered by their estimated cost when predicates
+     * are parsed, so the cheapest operands is evaluated first. This is disabled by default.
+     *
+     * @param reorderLogicalOperands <tt>true</tt> if the operands of the logical operators does not depend on each other
+     * @see LogicalReorderer
+     */
+    public void setReorderLogicalOperands(boolean reorderLogicalOperands) {
+        this.reorderLogicalOperands = reorderLogicalOperands;
+    }
+
+    public boolean isAdaptiveLogicalOperands() {
+        return adaptiveLogicalOperands;
+    }
+
+    /**
+     * Whether the operands of the logical operators should be reordered at runtime, based on their observed
+     * cost and outcome. This is disabled by default.
+     *
+     * @param adaptiveLogicalOperands <tt>true</tt> if the operands of the logical operators does not depend on each other
+     * @see org.apache.camel.language.simple.ast.AdaptiveLogicalPredicate
+     */
+    public void setAdaptiveLogicalOperands(boolean adaptiveLogicalOperands) {
+        this.adaptiveLogicalOperands = adaptiveLogicalOperands;
+    }
+
+    public boolean isCacheDateNow() {
+        return cacheDateNow;
+    }
+
+    /**
+     * Whether the formatted value of the <tt>${date:now:pattern}</tt> function should be cached, so the value is only
+     * formatted again when the second changes (or the millisecond if the pattern includes the milliseconds).
+     * This is disabled by default.
+     *
+     * @param cacheDateNow <tt>true</tt> to cache the formatted value
+     * @see CachedDateExpression
+     */
+    public void setCacheDateNow(boolean cacheDateNow) {
+        this.cacheDateNow = cacheDateNow;
+    }
+
     @Override
     public boolean isSingleton() {
         // we cannot be singleton as we have state
@@ -110,30 +208,200 @@ public class Simple2Language implements Language, IsSingleton {
     }
 
     public Predicate createPredicate(String expression) {
+        SimpleExpressionCache.Kind kind = compiled ? SimpleExpressionCache.Kind.COMPILED_PREDICATE : SimpleExpressionCache.Kind.PREDICATE;
+        int options = getPredicateOptions();
+        // the generation is read first, so the predicate is not cached if the cache is cleared while parsing
+        long generation = CACHE.getGeneration();
+        Predicate answer = (Predicate) CACHE.get(kind, expression, null, options);
+        if (answer != null) {
+            return answer;
+        }
+
         // support old simple language syntax
-        Predicate answer = SimpleBackwardsCompatibleParser.parsePredicate(expression);
+        answer = SimpleBackwardsCompatibleParser.parsePredicate(expression);
         if (answer == null) {
             // use the new parser
-            SimplePredicateParser parser = new SimplePredicateParser(expression);
+            SimplePredicateParser parser = new SimplePredicateParser(expression, compiled);
+            parser.setFoldStaticFunctions(foldStaticFunctions);
+            parser.setReorderLogicalOperands(reorderLogicalOperands);
+            parser.setAdaptiveLogicalOperands(adaptiveLogicalOperands);
+            parser.setCacheDateNow(cacheDateNow);
             answer = parser.parsePredicate();
         }
+
+        if (answer != null) {
+            CACHE.put(kind, expression, null, options, answer, generation);
+        }
         return answer;
     }
 
     public Expression createExpression(String expression) {
+        int options = getExpressionOptions();
+        long generation = CACHE.getGeneration();
+        Expression answer = (Expression) CACHE.get(SimpleExpressionCache.Kind.EXPRESSION, expression, resultType, options);
+        if (answer != null) {
+            return answer;
+        }
+
         // support old simple language syntax
-        Expression answer = SimpleBackwardsCompatibleParser.parseExpression(expression);
+        answer = SimpleBackwardsCompatibleParser.parseExpression(expression);
         if (answer == null) {
             // use the new parser
             SimpleExpressionParser parser = new SimpleExpressionParser(expression);
+            parser.setCacheDateNow(cacheDateNow);
             answer = parser.parseExpression();
         }
         if (resultType != null) {
             answer = ExpressionBuilder.convertToExpression(answer, resultType);
         }
+
+        if (answer != null) {
+            CACHE.put(SimpleExpressionCache.Kind.EXPRESSION, expression, resultType, options, answer, generation);
+        }
         return answer;
     }
 
+    /**
+     * Creates a template, which can be rendered directly to an output, such as when the template is large.
+     *
+     * @param expression the template
+     * @return the template
+     * @see SimpleTemplate#render(org.apache.camel.Exchange, Appendable)
+     */
+    public SimpleTemplate createTemplate(String expression) {
+        int options = getExpressionOptions();
+        long generation = CACHE.getGeneration();
+        SimpleTemplate answer = (SimpleTemplate) CACHE.get(SimpleExpressionCache.Kind.TEMPLATE, expression, null, options);
+        if (answer != null) {
+            return answer;
+        }
+
+        // support old simple language syntax
+        Expression old = SimpleBackwardsCompatibleParser.parseExpression(expression);
+        if (old != null) {
+            answer = new SimpleTemplate(expression, Collections.<Object>singletonList(old));
+        } else {
+            // use the new parser
+            SimpleExpressionParser parser = new SimpleExpressionParser(expression);
+            parser.setCacheDateNow(cacheDateNow);
+            answer = parser.parseTemplate();
+        }
+
+        CACHE.put(SimpleExpressionCache.Kind.TEMPLATE, expression, null, options, answer, generation);
+        return answer;
+    }
+
+    private int getPredicateOptions() {
+        int answer = getExpressionOptions();
+        if (foldStaticFunctions) {
+            answer |= FOLD_STATIC_FUNCTIONS;
+        }
+        if (reorderLogicalOperands) {
+            answer |= REORDER_LOGICAL_OPERANDS;
+        }
+        if (adaptiveLogicalOperands) {
+            answer |= ADAPTIVE_LOGICAL_OPERANDS;
+        }
+        return answer;
+    }
+
+    private int getExpressionOptions() {
+        return cacheDateNow ? CACHE_DATE_NOW : 0;
+    }
+
+    /**
+     * Gets the cache of compiled expressions and predicates, which is shared by all the
+     * {@link Simple2Language} instances.
+     */
+    public static SimpleExpressionCache getExpressionCache() {
+        return CACHE;
+    }
+
+    /**
+     * Sets the maximum number of compiled expressions and predicates to keep in the cache.
+     *
+     * @param maxCacheSize the maximum size
+     */
+    public static void setMaxCacheSize(int maxCacheSize) {
+        CACHE.setMaxCacheSize(maxCacheSize);
+    }
+
+    /**
+     * Adds a custom function which matches the given name only, such as <tt>${tenant}</tt>.
+     *
+     * @param name    the name of the function
+     * @param factory the factory to create the expression
+     * @see SimpleFunctionRegistry#addFunction(String, SimpleFunctionFactory)
+     */
+    public static void addFunction(String name, SimpleFunctionFactory factory) {
+        SimpleFunctionExpression.getFunctionRegistry().addFunction(name, factory);
+        // the cached expressions may have been compiled using another function
+        CACHE.clear();
+    }
+
+    /**
+     * Adds a custom function which matches any function starting with the given prefix, such as <tt>${shard:orders}</tt>.
+     *
+     * @param prefix  the prefix of the function
+     * @param factory the factory to create the expression
+     * @see SimpleFunctionRegistry#addFunctionPrefix(String, SimpleFunctionFactory)
+     */
+    public static void addFunctionPrefix(String prefix, SimpleFunctionFactory factory) {
+        SimpleFunctionExpression.getFunctionRegistry().addFunctionPrefix(prefix, factory);
+        // the cached expressions may have been compiled using another function
+        CACHE.clear();
+    }
+
+    /**
+     * Adds the custom functions from the {@link SimpleFunctionProvider}s found using the application class loader
+     * of the given {@link CamelContext}, or the class loader of this language if no application class loader is set.
+     *
+     * @param camelContext the camel context
+     * @return the number of providers which was added
+     * @see SimpleFunctionRegistry#FUNCTION_PROVIDERS
+     */
+    public static int addFunctionProviders(CamelContext camelContext) {
+        ClassLoader classLoader = camelContext.getApplicationContextClassLoader();
+        if (classLoader == null) {
+            classLoader = Simple2Language.class.getClassLoader();
+        }
+        return addFunctionProviders(classLoader);
+    }
+
+    /**
+     * Adds the custom functions from the {@link SimpleFunctionProvider}s found using the given class loader.
+     *
+     * @param classLoader the class loader
+     * @return the number of providers which was added
+     * @see SimpleFunctionRegistry#addFunctionProviders(ClassLoader)
+     */
+    public static int addFunctionProviders(ClassLoader classLoader) {
+        int answer = SimpleFunctionExpression.getFunctionRegistry().addFunctionProviders(classLoader);
+        // the cached expressions may have been compiled using another function
+        CACHE.clear();
+        return answer;
+    }
+
+    /**
+     * Removes the function with the given name.
+     *
+     * @param name the name of the function
+     */
+    public static void removeFunction(String name) {
+        SimpleFunctionExpression.getFunctionRegistry().removeFunction(name);
+        CACHE.clear();
+    }
+
+    /**
+     * Removes the function with the given prefix.
+     *
+     * @param prefix the prefix of the function
+     */
+    public static void removeFunctionPrefix(String prefix) {
+        SimpleFunctionExpression.getFunctionRegistry().removeFunctionPrefix(prefix);
+        CACHE.clear();
+    }
+
     public static Expression simple(String expression) {
         return SIMPLE.createExpression(expression);
     }
@@ -146,10 +414,14 @@ public class Simple2Language implements Language, IsSingleton {
 
     public static void changeFunctionStartToken(String... startToken) {
         SimpleTokenizer.changeFunctionStartToken(startToken);
+        // the cached expressions was compiled using the old tokens
+        CACHE.clear();
     }
     
     public static void changeFunctionEndToken(String... endToken) {
         SimpleTokenizer.changeFunctionEndToken(endToken);
+        // the cached expressions was compiled using the old tokens
+        CACHE.clear();
     }
 
 }
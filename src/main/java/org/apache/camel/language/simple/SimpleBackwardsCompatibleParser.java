@@ -51,11 +51,14 @@ public class SimpleBackwardsCompatibleParser {
 
     private static Expression doParseExpression(String expression) {
         // should have no function tokens
-        for (int i = 0; i < expression.length(); i++) {
+        int i = 0;
+        while (i < expression.length()) {
             SimpleToken token = SimpleTokenizer.nextToken(expression, i, TokenType.functionStart, TokenType.functionEnd);
             if (token.getType().getType() == TokenType.functionStart|| token.getType().getType() == TokenType.functionEnd) {
                 return null;
             }
+            // skip past the token as a character token can hold many characters
+            i += token.getLength();
         }
 
         // okay there is no function tokens, then try to parse it as a simple function expression
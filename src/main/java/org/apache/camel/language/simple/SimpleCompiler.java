@@ -0,0 +1,396 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.language.simple.ast.BinaryExpression;
+import org.apache.camel.language.simple.ast.GroupStart;
+import org.apache.camel.language.simple.ast.InMessageExpression;
+import org.apache.camel.language.simple.ast.LogicalExpression;
+import org.apache.camel.language.simple.ast.SimpleFunctionStart;
+import org.apache.camel.language.simple.ast.SimpleNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.camel.language.simple.ClassFileWriter.*;
+
+/**
+ * Compiles the AST of a predicate into a single generated class.
+ * <p/>
+ * The logical operators is compiled into jumps, and the comparisons with a literal, such as
+ * <tt>${header.foo} == 'abc'</tt>, is compiled inline. When the left hand side of such a comparison is the body
+ * or a header of the in message, the value is read directly from the message, and then compared using the
+ * {@link BinaryExpression.LiteralComparison} which is a final class, so the JIT can inline the predicate end-to-end.
+ * The other operands, such as <tt>${body} regex '.*abc'</tt>, is a field holding the predicate created from
+ * the AST, which is invoked using {@link Predicate#matches(org.apache.camel.Exchange)}. A predicate with a single
+ * operand is not compiled.
+ * <p/>
+ * The header names, literals and operands is given to the constructor of the generated class, so the class only
+ * depends on the shape of the predicate, and the predicates with the same shape, such as
+ * <tt>${header.foo} == 'abc' && ${header.bar} > 100</tt> and <tt>${header.id} != '123' && ${body} < 5</tt>,
+ * shares the same generated class. At most {@link #MAX_CLASSES} classes is generated, after which the predicates
+ * of a new shape is not compiled, and the AST should be used as is. Likewise if the AST cannot be compiled then
+ * <tt>null</tt> is returned.
+ * <p/>
+ * The expressions is not compiled, as a template is appended by the {@link SimpleTemplate}.
+ */
+public final class SimpleCompiler {
+
+    /**
+     * The maximum number of generated classes.
+     */
+    public static final int MAX_CLASSES = 500;
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(SimpleCompiler.class);
+
+    private static final String PACKAGE = "org/apache/camel/language/simple/compiled/";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String STRING = "java/lang/String";
+    private static final String PREDICATE = "org/apache/camel/Predicate";
+    private static final String EXPRESSION = "org/apache/camel/Expression";
+    private static final String EXCHANGE = "org/apache/camel/Exchange";
+    private static final String MESSAGE = "org/apache/camel/Message";
+    private static final String COMPARISON = "org/apache/camel/language/simple/ast/BinaryExpression$LiteralComparison";
+    private static final String CONSTRUCTOR = "([Ljava/lang/Object;Ljava/lang/String;)V";
+
+    // the shape of a predicate, in prefix notation, where each operand is given by the kind of operand
+    private static final char AND = '&';
+    private static final char OR = '|';
+    // a predicate invoked using a field
+    private static final char PREDICATE_OPERAND = 'P';
+    // a comparison of a header with a literal
+    private static final char HEADER_COMPARISON = 'H';
+    // a comparison of the body with a literal
+    private static final char BODY_COMPARISON = 'B';
+    // a comparison of an expression with a literal
+    private static final char EXPRESSION_COMPARISON = 'E';
+
+    // the generated classes by the shape of the predicate
+    private static final Map<String, Constructor<?>> CLASSES = new ConcurrentHashMap<String, Constructor<?>>();
+    private static final CompiledClassLoader LOADER = new CompiledClassLoader(SimpleCompiler.class.getClassLoader());
+
+    private SimpleCompiler() {
+    }
+
+    /**
+     * Compiles the nodes of a predicate, which is regarded as a single predicate
+     * which only matches if all the nodes matches.
+     *
+     * @param nodes      the nodes
+     * @param expression the input string
+     * @return the compiled predicate, or <tt>null</tt> if the nodes cannot be compiled
+     */
+    public static Predicate compilePredicate(List<SimpleNode> nodes, String expression) {
+        if (nodes.isEmpty()) {
+            return null;
+        }
+        if (nodes.size() == 1 && !(unwrap(nodes.get(0)) instanceof LogicalExpression)) {
+            // nothing to gain from compiling a single operand
+            return null;
+        }
+
+        // create the operands first, as invalid operands should be reported as parser errors
+        StringBuilder shape = new StringBuilder();
+        List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i < nodes.size() - 1) {
+                // the nodes is regarded as and'ed together
+                shape.append(AND);
+            }
+            if (!collectOperands(nodes.get(i), shape, values, expression)) {
+                return null;
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (SimpleNode node : nodes) {
+            if (text.length() > 0) {
+                text.append(" && ");
+            }
+            text.append(node);
+        }
+
+        try {
+            Constructor<?> constructor = getConstructor(shape.toString());
+            if (constructor == null) {
+                LOG.debug("Cannot compile predicate: {} as the maximum of {} generated classes is reached. The predicate is not compiled.",
+                        expression, MAX_CLASSES);
+                return null;
+            }
+            return (Predicate) constructor.newInstance(values.toArray(), text.toString());
+        } catch (Exception e) {
+            LOG.debug("Cannot compile predicate: " + expression + ". The predicate is not compiled.", e);
+        } catch (LinkageError e) {
+            LOG.debug("Cannot compile predicate: " + expression + ". The predicate is not compiled.", e);
+        }
+        return null;
+    }
+
+    private static SimpleNode unwrap(SimpleNode node) {
+        // a group is evaluated as its node
+        while (node instanceof GroupStart) {
+            node = ((GroupStart) node).getNode();
+        }
+        return node;
+    }
+
+    /**
+     * Adds the shape of the given node, and the values of its operands in the same order as
+     * the fields of the generated class.
+     */
+    private static boolean collectOperands(SimpleNode node, StringBuilder shape, List<Object> values, String expression) {
+        SimpleNode target = unwrap(node);
+        if (target instanceof LogicalExpression) {
+            LogicalExpression logical = (LogicalExpression) target;
+            shape.append(logical.getOperator() == LogicalOperatorType.AND ? AND : OR);
+            return collectOperands(logical.getLeft(), shape, values, expression)
+                    && collectOperands(logical.getRight(), shape, values, expression);
+        }
+
+        if (target instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) target;
+            BinaryExpression.LiteralComparison comparison = binary.createLiteralComparison();
+            if (comparison != null && binary.getLeft() != null) {
+                // the message is read directly, which is as cheap as sharing the value with the other operands
+                SimpleNode left = binary.getLeft();
+                Expression read = left instanceof SimpleFunctionStart ? ((SimpleFunctionStart) left).createFunctionExpression(expression) : null;
+                if (read instanceof InMessageExpression) {
+                    String header = ((InMessageExpression) read).getHeaderName();
+                    values.add(comparison);
+                    if (header != null) {
+                        shape.append(HEADER_COMPARISON);
+                        values.add(header);
+                    } else {
+                        shape.append(BODY_COMPARISON);
+                    }
+                    return true;
+                }
+                Expression exp = left.createExpression(expression);
+                if (exp != null) {
+                    shape.append(EXPRESSION_COMPARISON);
+                    values.add(comparison);
+                    values.add(exp);
+                    return true;
+                }
+            }
+        }
+
+        Predicate predicate = target != null ? target.createPredicate(expression) : null;
+        if (predicate == null) {
+            return false;
+        }
+        shape.append(PREDICATE_OPERAND);
+        values.add(predicate);
+        return true;
+    }
+
+    private static Constructor<?> getConstructor(String shape) throws Exception {
+        Constructor<?> answer = CLASSES.get(shape);
+        if (answer != null) {
+            return answer;
+        }
+        synchronized (CLASSES) {
+            answer = CLASSES.get(shape);
+            if (answer == null && CLASSES.size() < MAX_CLASSES) {
+                String name = PACKAGE + "Simple2Predicate" + (CLASSES.size() + 1);
+                byte[] bytes = writePredicateClass(name, shape);
+                answer = LOADER.define(name.replace('/', '.'), bytes).getConstructor(Object[].class, String.class);
+                CLASSES.put(shape, answer);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Gets the number of generated classes.
+     */
+    public static int getClassCount() {
+        return CLASSES.size();
+    }
+
+    private static byte[] writePredicateClass(String name, String shape) throws Exception {
+        List<String> fields = new ArrayList<String>();
+        for (int i = 0; i < shape.length(); i++) {
+            switch (shape.charAt(i)) {
+            case PREDICATE_OPERAND:
+                fields.add(PREDICATE);
+                break;
+            case HEADER_COMPARISON:
+                fields.add(COMPARISON);
+                fields.add(STRING);
+                break;
+            case BODY_COMPARISON:
+                fields.add(COMPARISON);
+                break;
+            case EXPRESSION_COMPARISON:
+                fields.add(COMPARISON);
+                fields.add(EXPRESSION);
+                break;
+            default:
+                // a logical operator has no fields
+            }
+        }
+
+        ClassFileWriter writer = new ClassFileWriter();
+        writeFields(writer, fields);
+        writeConstructor(writer, name, fields);
+        writeToString(writer, name);
+
+        Code code = new Code(5, 2);
+        Label notMatches = new Label();
+        writeCondition(writer, code, name, fields, shape, new int[1], false, notMatches, new int[1]);
+        code.op(ICONST_1);
+        code.op(IRETURN);
+        code.mark(notMatches);
+        code.op(ICONST_0);
+        code.op(IRETURN);
+        writer.addMethod(ACC_PUBLIC, "matches", "(L" + EXCHANGE + ";)Z", code);
+
+        return writer.toByteArray(ACC_PUBLIC | ACC_FINAL | ACC_SUPER, name, OBJECT, PREDICATE);
+    }
+
+    /**
+     * Writes the jumps of the operand at the given position in the shape, which jumps to the label if the operand
+     * matches the given outcome, and otherwise continues with the next instruction. The fields is used in the same
+     * order as the values was collected.
+     */
+    private static void writeCondition(ClassFileWriter writer, Code code, String name, List<String> fields, String shape,
+                                       int[] position, boolean jumpIfMatches, Label label, int[] field) throws Exception {
+        char kind = shape.charAt(position[0]++);
+        if (kind == AND || kind == OR) {
+            boolean and = kind == AND;
+            if (and == jumpIfMatches) {
+                // the outcome depends on both operands, so the left hand side skips the right hand side
+                // (eg a && b is only true if both is true, and a || b is only false if both is false)
+                Label skip = new Label();
+                writeCondition(writer, code, name, fields, shape, position, !jumpIfMatches, skip, field);
+                writeCondition(writer, code, name, fields, shape, position, jumpIfMatches, label, field);
+                code.mark(skip);
+            } else {
+                // either operand decides the outcome
+                writeCondition(writer, code, name, fields, shape, position, jumpIfMatches, label, field);
+                writeCondition(writer, code, name, fields, shape, position, jumpIfMatches, label, field);
+            }
+            return;
+        }
+
+        if (kind == PREDICATE_OPERAND) {
+            getField(writer, code, name, fields, field[0]++);
+            code.op(ALOAD_1);
+            code.invokeInterface(writer.interfaceMethodRef(PREDICATE, "matches", "(L" + EXCHANGE + ";)Z"), 1);
+            code.jump(jumpIfMatches ? IFNE : IFEQ, label);
+            return;
+        }
+
+        // the comparison is invoked with the exchange and the value of the left hand side
+        getField(writer, code, name, fields, field[0]++);
+        code.op(ALOAD_1);
+        if (kind == HEADER_COMPARISON) {
+            // the header, or the exchange property with the same name if there is no such header
+            int header = field[0]++;
+            Label found = new Label();
+            code.op(ALOAD_1);
+            code.invokeInterface(writer.interfaceMethodRef(EXCHANGE, "getIn", "()L" + MESSAGE + ";"), 0);
+            getField(writer, code, name, fields, header);
+            code.invokeInterface(writer.interfaceMethodRef(MESSAGE, "getHeader", "(L" + STRING + ";)L" + OBJECT + ";"), 1);
+            code.op(DUP);
+            code.jump(IFNONNULL, found);
+            code.op(POP);
+            code.op(ALOAD_1);
+            getField(writer, code, name, fields, header);
+            code.invokeInterface(writer.interfaceMethodRef(EXCHANGE, "getProperty", "(L" + STRING + ";)L" + OBJECT + ";"), 1);
+            code.mark(found);
+        } else if (kind == BODY_COMPARISON) {
+            code.op(ALOAD_1);
+            code.invokeInterface(writer.interfaceMethodRef(EXCHANGE, "getIn", "()L" + MESSAGE + ";"), 0);
+            code.invokeInterface(writer.interfaceMethodRef(MESSAGE, "getBody", "()L" + OBJECT + ";"), 0);
+        } else {
+            getField(writer, code, name, fields, field[0]++);
+            code.op(ALOAD_1);
+            code.op(LDC_W, writer.classRef(OBJECT));
+            code.invokeInterface(writer.interfaceMethodRef(EXPRESSION, "evaluate",
+                    "(L" + EXCHANGE + ";Ljava/lang/Class;)L" + OBJECT + ";"), 2);
+        }
+        code.op(INVOKEVIRTUAL, writer.methodRef(COMPARISON, "matches", "(L" + EXCHANGE + ";L" + OBJECT + ";)Z"));
+        code.jump(jumpIfMatches ? IFNE : IFEQ, label);
+    }
+
+    private static void getField(ClassFileWriter writer, Code code, String name, List<String> fields, int index) throws Exception {
+        code.op(ALOAD_0);
+        code.op(GETFIELD, writer.fieldRef(name, "f" + index, "L" + fields.get(index) + ";"));
+    }
+
+    private static void writeFields(ClassFileWriter writer, List<String> fields) throws Exception {
+        for (int i = 0; i < fields.size(); i++) {
+            writer.addField(ACC_PRIVATE | ACC_FINAL, "f" + i, "L" + fields.get(i) + ";");
+        }
+        writer.addField(ACC_PRIVATE | ACC_FINAL, "text", "L" + STRING + ";");
+    }
+
+    private static void writeConstructor(ClassFileWriter writer, String name, List<String> fields) throws Exception {
+        if (fields.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many operands: " + fields.size());
+        }
+        // the values is given as an array, which is cast to the type of the fields
+        Code code = new Code(3, 3);
+        code.op(ALOAD_0);
+        code.op(INVOKESPECIAL, writer.methodRef(OBJECT, "<init>", "()V"));
+        for (int i = 0; i < fields.size(); i++) {
+            code.op(ALOAD_0);
+            code.op(ALOAD_1);
+            code.op(SIPUSH, i);
+            code.op(AALOAD);
+            code.op(CHECKCAST, writer.classRef(fields.get(i)));
+            code.op(PUTFIELD, writer.fieldRef(name, "f" + i, "L" + fields.get(i) + ";"));
+        }
+        code.op(ALOAD_0);
+        code.op(ALOAD_2);
+        code.op(PUTFIELD, writer.fieldRef(name, "text", "L" + STRING + ";"));
+        code.op(RETURN);
+        writer.addMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR, code);
+    }
+
+    private static void writeToString(ClassFileWriter writer, String name) throws Exception {
+        Code code = new Code(1, 1);
+        code.op(ALOAD_0);
+        code.op(GETFIELD, writer.fieldRef(name, "text", "L" + STRING + ";"));
+        code.op(ARETURN);
+        writer.addMethod(ACC_PUBLIC, "toString", "()L" + STRING + ";", code);
+    }
+
+    /**
+     * The class loader of the generated classes, which is bounded by {@link #MAX_CLASSES}.
+     */
+    private static final class CompiledClassLoader extends ClassLoader {
+
+        private CompiledClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+}
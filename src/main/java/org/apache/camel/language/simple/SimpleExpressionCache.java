@@ -0,0 +1,312 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache of compiled {@link org.apache.camel.Expression}s and
+ * {@link org.apache.camel.Predicate}s keyed by the input text.
+ * <p/>
+ * As the {@link Simple2Language} is not a singleton the result type is part of the key,
+ * so the same text compiled with different result types is cached separately. Likewise the options of the language,
+ * which affects how the text is compiled, is part of the key.
+ * <p/>
+ * This cache is thread safe, and reading from the cache does not lock. The eviction is an approximate LRU,
+ * as the clock is only advanced by the puts, so the entries read between two puts is regarded as equally recent.
+ * When the cache is full, such as when the expressions are created with dynamic text per message, a single scan
+ * evicts the least recently used tenth of the cache, so the following puts does not scan the cache until it is
+ * full again. A put does not wait for another thread which is evicting.
+ * <p/>
+ * The cache has a generation which is advanced when the cache is cleared, so a value which was compiled before
+ * the cache was cleared, such as with another function registry, is not added to the cache.
+ */
+public class SimpleExpressionCache {
+
+    public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
+    private final ConcurrentMap<Key, Entry> cache = new ConcurrentHashMap<Key, Entry>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private volatile int maxCacheSize;
+
+    public SimpleExpressionCache() {
+        this(DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public SimpleExpressionCache(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Gets the cached value
+     *
+     * @param kind        whether its a predicate or expression
+     * @param text        the input text
+     * @param resultType  optional result type
+     * @return the cached value, or <tt>null</tt> if not in the cache
+     */
+    public Object get(Kind kind, String text, Class<?> resultType) {
+        return get(kind, text, resultType, 0);
+    }
+
+    /**
+     * Gets the cached value
+     *
+     * @param kind        whether its a predicate or expression
+     * @param text        the input text
+     * @param resultType  optional result type
+     * @param options     the options of the language which affects the compiled value, as a bit mask
+     * @return the cached value, or <tt>null</tt> if not in the cache
+     */
+    public Object get(Kind kind, String text, Class<?> resultType, int options) {
+        Entry entry = cache.get(new Key(kind, text, resultType, options));
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entry.access = clock.get();
+        return entry.value;
+    }
+
+    /**
+     * Adds the value to the cache
+     *
+     * @param kind        whether its a predicate or expression
+     * @param text        the input text
+     * @param resultType  optional result type
+     * @param value       the compiled value
+     */
+    public void put(Kind kind, String text, Class<?> resultType, Object value) {
+        put(kind, text, resultType, 0, value);
+    }
+
+    /**
+     * Adds the value to the cache
+     *
+     * @param kind        whether its a predicate or expression
+     * @param text        the input text
+     * @param resultType  optional result type
+     * @param options     the options of the language which affects the compiled value, as a bit mask
+     * @param value       the compiled value
+     */
+    public void put(Kind kind, String text, Class<?> resultType, int options, Object value) {
+        put(kind, text, resultType, options, value, generation.get());
+    }
+
+    /**
+     * Adds the value to the cache, unless the cache has been cleared since the value was compiled.
+     *
+     * @param kind        whether its a predicate or expression
+     * @param text        the input text
+     * @param resultType  optional result type
+     * @param options     the options of the language which affects the compiled value, as a bit mask
+     * @param value       the compiled value
+     * @param generation  the {@link #getGeneration() generation} of the cache from before the value was compiled
+     */
+    public void put(Kind kind, String text, Class<?> resultType, int options, Object value, long generation) {
+        if (generation != this.generation.get()) {
+            return;
+        }
+        // advance the clock after the put, so the reads from now on is more recent than this put
+        Key key = new Key(kind, text, resultType, options);
+        Entry entry = new Entry(value, clock.getAndIncrement());
+        cache.put(key, entry);
+        if (generation != this.generation.get()) {
+            // the cache was cleared while adding the value
+            cache.remove(key, entry);
+            return;
+        }
+        if (cache.size() > maxCacheSize && evictionLock.tryLock()) {
+            // another thread which is evicting will evict enough for this put as well
+            try {
+                evict();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Clears the cache, for example when the function tokens have been changed.
+     * <p/>
+     * This advances the {@link #getGeneration() generation}, so the values compiled before the cache was cleared
+     * is not added to the cache.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    /**
+     * Gets the generation of the cache, which is advanced each time the cache is cleared.
+     * <p/>
+     * The generation should be read before compiling a value, and given when the value is added to the cache.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Sets a new maximum cache size, which will evict the least recently used values if the cache is larger
+     * than the new size.
+     *
+     * @param maxCacheSize the new maximum size
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+        evictionLock.lock();
+        try {
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvicted() {
+        return evicted.get();
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evicted.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "SimpleExpressionCache[size=" + size() + ", maxCacheSize=" + getMaxCacheSize()
+                + ", hits=" + getHits() + ", misses=" + getMisses() + ", evicted=" + getEvicted() + "]";
+    }
+
+    private void evict() {
+        int max = maxCacheSize;
+        int size = cache.size();
+        if (size <= max) {
+            return;
+        }
+
+        // evict a tenth of the cache as well, so the next scan is only after that many puts
+        int count = size - (max - max / 10);
+        long[] clocks = new long[size];
+        int n = 0;
+        for (Entry entry : cache.values()) {
+            if (n == clocks.length) {
+                // the cache has grown while scanning
+                clocks = Arrays.copyOf(clocks, n * 2);
+            }
+            clocks[n++] = entry.access;
+        }
+        count = Math.min(count, n);
+        if (count <= 0) {
+            return;
+        }
+        Arrays.sort(clocks, 0, n);
+        long oldest = clocks[count - 1];
+
+        for (Map.Entry<Key, Entry> candidate : cache.entrySet()) {
+            if (count == 0) {
+                break;
+            }
+            if (candidate.getValue().access <= oldest && cache.remove(candidate.getKey(), candidate.getValue())) {
+                evicted.incrementAndGet();
+                count--;
+            }
+        }
+    }
+
+    /**
+     * What has been compiled
+     */
+    public enum Kind {
+        EXPRESSION, PREDICATE, COMPILED_PREDICATE, TEMPLATE
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private volatile long access;
+
+        private Entry(Object value, long access) {
+            this.value = value;
+            this.access = access;
+        }
+    }
+
+    private static final class Key {
+
+        private final Kind kind;
+        private final String text;
+        private final Class<?> resultType;
+        private final int options;
+
+        private Key(Kind kind, String text, Class<?> resultType, int options) {
+            this.kind = kind;
+            this.text = text;
+            this.resultType = resultType;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return kind == that.kind && text.equals(that.text) && resultType == that.resultType && options == that.options;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind.hashCode();
+            result = 31 * result + text.hashCode();
+            result = 31 * result + (resultType != null ? resultType.hashCode() : 0);
+            result = 31 * result + options;
+            return result;
+        }
+    }
+
+}
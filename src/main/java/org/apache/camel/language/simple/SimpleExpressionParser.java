@@ -22,6 +22,7 @@ import java.util.List;
 import org.apache.camel.Expression;
 import org.apache.camel.builder.ExpressionBuilder;
 import org.apache.camel.language.simple.ast.SimpleFunctionEnd;
+import org.apache.camel.language.simple.ast.SimpleFunctionExpression;
 import org.apache.camel.language.simple.ast.SimpleFunctionStart;
 import org.apache.camel.language.simple.ast.LiteralExpression;
 import org.apache.camel.language.simple.ast.LiteralNode;
@@ -33,6 +34,12 @@ import org.apache.camel.language.simple.ast.UnaryExpression;
  */
 public class SimpleExpressionParser extends BaseSimpleParser {
 
+    // the token types the expression parser accepts, so the literal text up till the next of these tokens
+    // is a single character token, instead of being split at every character which may start an operator
+    private static final TokenType[] TEMPLATE_TOKENS = {
+        TokenType.functionStart, TokenType.functionEnd, TokenType.unaryOperator, TokenType.escapedValue
+    };
+
     public SimpleExpressionParser(String expression) {
         super(expression);
     }
@@ -50,15 +57,50 @@ public class SimpleExpressionParser extends BaseSimpleParser {
         }
     }
 
+    /**
+     * Parses the input as a template, which can be rendered directly to an output.
+     *
+     * @return the template, is never <tt>null</tt>
+     */
+    public SimpleTemplate parseTemplate() {
+        clear();
+        try {
+            parseTokensAndCreateNodes();
+            return new SimpleTemplate(expression, createParts());
+        } catch (SimpleParserException e) {
+            // catch parser exception and turn that into a syntax exceptions
+            throw new SimpleIllegalSyntaxException(expression, e.getIndex(), e.getMessage(), e);
+        } catch (Exception e) {
+            // include exception in rethrown exception
+            throw new SimpleIllegalSyntaxException(expression, -1, e.getMessage(), e);
+        }
+    }
+
     protected Expression doParseExpression() {
+        parseTokensAndCreateNodes();
+
+        // create and return as a Camel expression
+        List<Object> parts = createParts();
+        if (parts.isEmpty()) {
+            return null;
+        } else if (parts.size() == 1) {
+            Object part = parts.get(0);
+            return part instanceof String ? ExpressionBuilder.constantExpression((String) part) : (Expression) part;
+        } else {
+            // evaluating an expression is like a template language
+            return new SimpleTemplate(expression, parts);
+        }
+    }
+
+    protected void parseTokensAndCreateNodes() {
         // parse the expression using the following grammar
-        nextToken();
-        while (!token.getType().isEol()) {
+        nextToken(TEMPLATE_TOKENS);
+        while (!token.isEol()) {
             // an expression supports just template (eg text), functions, or unary operator
             templateText();
             functionText();
             unaryOperator();
-            nextToken();
+            nextToken(TEMPLATE_TOKENS);
         }
 
         // now after parsing we need a bit of work to do, to make it easier to turn the tokens
@@ -71,31 +113,15 @@ public class SimpleExpressionParser extends BaseSimpleParser {
         prepareBlocks();
         // compact and stack unary operators
         prepareUnaryExpressions();
-
-        // create and return as a Camel expression
-        List<Expression> expressions = createExpressions();
-        if (expressions.isEmpty()) {
-            return null;
-        } else if (expressions.size() == 1) {
-            return expressions.get(0);
-        } else {
-            // concat expressions as evaluating an expression is like a template language
-            return ExpressionBuilder.concatExpression(expressions, expression);
-        }
     }
 
     protected void parseAndCreateAstModel() {
         // we loop the tokens and create a sequence of ast nodes
 
         LiteralNode imageToken = null;
-        for (SimpleToken token : tokens) {
-            // break if eol
-            if (token.getType().isEol()) {
-                break;
-            }
-
+        for (int i = 0; i < tokens.size(); i++) {
             // create a node from the token
-            SimpleNode node = createNode(token);
+            SimpleNode node = createNode(i);
             if (node != null) {
                 // a new token was created so the current image token need to be added first
                 if (imageToken != null) {
@@ -111,9 +137,12 @@ public class SimpleExpressionParser extends BaseSimpleParser {
             // if no token was created then its a character/whitespace/escaped symbol
             // which we need to add together in the same image
             if (imageToken == null) {
-                imageToken = new LiteralExpression(token);
+                SimpleToken first = tokens.createToken(i);
+                imageToken = new LiteralExpression(first);
+                imageToken.addText(first.getText());
+            } else {
+                imageToken.addText(tokens.getText(i));
             }
-            imageToken.addText(token.getText());
         }
 
         // append any leftover image tokens (when we reached eol)
@@ -122,26 +151,37 @@ public class SimpleExpressionParser extends BaseSimpleParser {
         }
     }
 
-    private SimpleNode createNode(SimpleToken token) {
+    private SimpleNode createNode(int i) {
         // expression only support functions and unary operators
-        if (token.getType().isFunctionStart()) {
-            return new SimpleFunctionStart(token);
-        } else if (token.getType().isFunctionEnd()) {
-            return new SimpleFunctionEnd(token);
-        } else if (token.getType().isUnary()) {
-            return new UnaryExpression(token);
+        SimpleTokenType type = tokens.getType(i);
+        if (type.isFunctionStart()) {
+            return new SimpleFunctionStart(tokens.createToken(i), isCacheDateNow());
+        } else if (type.isFunctionEnd()) {
+            return new SimpleFunctionEnd(tokens.createToken(i));
+        } else if (type.isUnary()) {
+            return new UnaryExpression(tokens.createToken(i));
         }
 
         // by returning null, we will let the parser determine what to do
         return null;
     }
 
-    private List<Expression> createExpressions() {
-        List<Expression> answer = new ArrayList<Expression>();
+    /**
+     * Creates the parts of the template from the AST nodes, where the literal texts is kept as strings,
+     * and the other nodes is created as {@link Expression}s.
+     *
+     * @return the parts, is never <tt>null</tt>.
+     */
+    private List<Object> createParts() {
+        List<Object> answer = new ArrayList<Object>();
         for (SimpleNode token : nodes) {
-            Expression exp = token.createExpression(expression);
-            if (exp != null) {
-                answer.add(exp);
+            if (token instanceof LiteralExpression && !(token instanceof SimpleFunctionExpression)) {
+                answer.add(((LiteralExpression) token).getText());
+            } else {
+                Expression exp = token.createExpression(expression);
+                if (exp != null) {
+                    answer.add(exp);
+                }
             }
         }
         return answer;
@@ -158,17 +198,17 @@ public class SimpleExpressionParser extends BaseSimpleParser {
 
     protected void templateText() {
         // for template we accept anything but functions
-        while (!token.getType().isFunctionStart() && !token.getType().isFunctionEnd() && !token.getType().isEol()) {
-            nextToken();
+        while (!token.isFunctionStart() && !token.isFunctionEnd() && !token.isEol()) {
+            nextToken(TEMPLATE_TOKENS);
         }
     }
 
     protected boolean functionText() {
         if (accept(TokenType.functionStart)) {
-            nextToken();
-            while (!token.getType().isFunctionEnd() && !token.getType().isEol()) {
+            nextToken(TEMPLATE_TOKENS);
+            while (!token.isFunctionEnd() && !token.isEol()) {
                 // we need to loop until we find the ending function quote, or the eol
-                nextToken();
+                nextToken(TEMPLATE_TOKENS);
             }
             expect(TokenType.functionEnd);
             return true;
@@ -178,8 +218,8 @@ public class SimpleExpressionParser extends BaseSimpleParser {
 
     protected boolean unaryOperator() {
         if (accept(TokenType.unaryOperator)) {
+            // accept any token, as there should be a whitespace after the operator
             nextToken();
-            // there should be a whitespace after the operator
             expect(TokenType.whiteSpace);
             return true;
         }
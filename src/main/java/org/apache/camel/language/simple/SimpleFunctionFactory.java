@@ -0,0 +1,45 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import org.apache.camel.Expression;
+
+/**
+ * A factory which creates the {@link Expression} for a function in the simple language,
+ * such as <tt>${header.foo}</tt>.
+ * <p/>
+ * The factory is invoked when the expression is parsed, which means the returned expression
+ * should be bound to the function, so it only has to evaluate the function at runtime.
+ *
+ * @see SimpleFunctionRegistry
+ */
+public interface SimpleFunctionFactory {
+
+    /**
+     * Creates the expression for the given function.
+     *
+     * @param function  the function, eg <tt>header.foo</tt>
+     * @param remainder the remainder of the function after the name or prefix the factory was registered with,
+     *                  which is empty if the factory was registered by the name of the function
+     * @param index     the index of the function in the input, to be used when reporting errors
+     * @return the created expression, or <tt>null</tt> to let a factory registered with a shorter prefix
+     *         create the expression instead
+     * @throws SimpleParserException should be thrown if the function is invalid
+     */
+    Expression createExpression(String function, String remainder, int index) throws SimpleParserException;
+
+}
@@ -0,0 +1,36 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+/**
+ * A provider of custom functions for the simple language.
+ * <p/>
+ * The providers are discovered using the <tt>class</tt> key in the {@link SimpleFunctionRegistry#FUNCTION_PROVIDERS}
+ * descriptor, which can list several providers separated by comma. The discovery is not done automatically, but when
+ * {@link Simple2Language#addFunctionProviders(org.apache.camel.CamelContext)} is invoked, which means the class loader
+ * of the application is used, and a provider can override a built-in function.
+ */
+public interface SimpleFunctionProvider {
+
+    /**
+     * Adds the functions of this provider to the registry.
+     *
+     * @param registry the registry
+     */
+    void addFunctions(SimpleFunctionRegistry registry);
+
+}
@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.camel.Expression;
+import org.apache.camel.util.IOHelper;
+import org.apache.camel.util.ObjectHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A registry of the functions in the simple language.
+ * <p/>
+ * A function is either registered by its name, such as <tt>body</tt>, or by a prefix, such as <tt>header.</tt>,
+ * which then matches any function starting with the prefix. The functions are kept in a prefix trie, so
+ * the factory of a function is resolved in a single pass over the function. When several prefixes match a function
+ * the longest prefix is tried first.
+ * <p/>
+ * Custom functions can be added using the {@link SimpleFunctionProvider}s found using a given class loader.
+ * <p/>
+ * This registry is thread safe.
+ */
+public class SimpleFunctionRegistry {
+
+    /**
+     * The descriptor which lists the {@link SimpleFunctionProvider}s to discover.
+     */
+    public static final String FUNCTION_PROVIDERS = "META-INF/services/org/apache/camel/language/simple2-functions";
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(SimpleFunctionRegistry.class);
+
+    private final Map<String, SimpleFunctionFactory> functions = new LinkedHashMap<String, SimpleFunctionFactory>();
+    private final Map<String, SimpleFunctionFactory> prefixes = new LinkedHashMap<String, SimpleFunctionFactory>();
+    private volatile Node root = new Node();
+
+    /**
+     * Adds a function which matches the given name only.
+     *
+     * @param name    the name of the function
+     * @param factory the factory to create the expression
+     * @return the factory previously registered with the name, or <tt>null</tt> if none was registered
+     */
+    public synchronized SimpleFunctionFactory addFunction(String name, SimpleFunctionFactory factory) {
+        ObjectHelper.notEmpty(name, "name");
+        ObjectHelper.notNull(factory, "factory");
+        SimpleFunctionFactory answer = functions.put(name, factory);
+        root = createTrie();
+        return answer;
+    }
+
+    /**
+     * Adds a function which matches any function which starts with the given prefix, and has a remainder.
+     *
+     * @param prefix  the prefix of the function
+     * @param factory the factory to create the expression
+     * @return the factory previously registered with the prefix, or <tt>null</tt> if none was registered
+     */
+    public synchronized SimpleFunctionFactory addFunctionPrefix(String prefix, SimpleFunctionFactory factory) {
+        ObjectHelper.notEmpty(prefix, "prefix");
+        ObjectHelper.notNull(factory, "factory");
+        SimpleFunctionFactory answer = prefixes.put(prefix, factory);
+        root = createTrie();
+        return answer;
+    }
+
+    /**
+     * Removes the function registered with the given name.
+     *
+     * @param name the name of the function
+     * @return the removed factory, or <tt>null</tt> if none was registered
+     */
+    public synchronized SimpleFunctionFactory removeFunction(String name) {
+        SimpleFunctionFactory answer = functions.remove(name);
+        if (answer != null) {
+            root = createTrie();
+        }
+        return answer;
+    }
+
+    /**
+     * Removes the function registered with the given prefix.
+     *
+     * @param prefix the prefix of the function
+     * @return the removed factory, or <tt>null</tt> if none was registered
+     */
+    public synchronized SimpleFunctionFactory removeFunctionPrefix(String prefix) {
+        SimpleFunctionFactory answer = prefixes.remove(prefix);
+        if (answer != null) {
+            root = createTrie();
+        }
+        return answer;
+    }
+
+    /**
+     * Adds the functions from the {@link SimpleFunctionProvider}s listed in the
+     * {@link #FUNCTION_PROVIDERS} descriptors found using the given class loader.
+     * <p/>
+     * A provider which cannot be loaded is logged and skipped. This can be invoked again, for example
+     * with another class loader, as a provider which is added again overrides its previous functions.
+     *
+     * @param classLoader the class loader
+     * @return the number of providers which was added
+     */
+    public int addFunctionProviders(ClassLoader classLoader) {
+        Enumeration<URL> urls;
+        try {
+            urls = classLoader.getResources(FUNCTION_PROVIDERS);
+        } catch (IOException e) {
+            LOG.warn("Cannot discover the simple function providers due " + e.getMessage() + ". This exception is ignored.", e);
+            return 0;
+        }
+
+        int answer = 0;
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            for (String name : loadFunctionProviderNames(url)) {
+                try {
+                    Class<?> type = classLoader.loadClass(name);
+                    SimpleFunctionProvider provider = ObjectHelper.newInstance(type, SimpleFunctionProvider.class);
+                    provider.addFunctions(this);
+                    answer++;
+                    LOG.debug("Added simple functions from provider: {}", name);
+                } catch (Throwable e) {
+                    LOG.warn("Cannot add the simple functions from provider: " + name + " listed in " + url
+                            + " due " + e.getMessage() + ". This exception is ignored.", e);
+                }
+            }
+        }
+        return answer;
+    }
+
+    private static String[] loadFunctionProviderNames(URL url) {
+        Properties properties = new Properties();
+        InputStream is = null;
+        try {
+            is = url.openStream();
+            properties.load(is);
+        } catch (IOException e) {
+            LOG.warn("Cannot load the simple function providers from " + url + " due " + e.getMessage() + ". This exception is ignored.", e);
+            return new String[0];
+        } finally {
+            IOHelper.close(is, url.toString(), LOG);
+        }
+
+        String names = properties.getProperty("class");
+        if (ObjectHelper.isEmpty(names)) {
+            return new String[0];
+        }
+        String[] answer = names.split(",");
+        for (int i = 0; i < answer.length; i++) {
+            answer[i] = answer[i].trim();
+        }
+        return answer;
+    }
+
+    /**
+     * Creates the expression for the given function.
+     *
+     * @param function the function, eg <tt>header.foo</tt>
+     * @param index    the index of the function in the input, to be used when reporting errors
+     * @return the created expression, or <tt>null</tt> if no function matched
+     * @throws SimpleParserException is thrown if the function is invalid
+     */
+    public Expression createExpression(String function, int index) throws SimpleParserException {
+        Expression[] answer = new Expression[1];
+        resolve(root, function, 0, index, answer);
+        return answer[0];
+    }
+
+    /**
+     * Gets the factory which creates the expression for the given function.
+     *
+     * @param function the function, eg <tt>header.foo</tt>
+     * @param index    the index of the function in the input, to be used when reporting errors
+     * @return the factory, or <tt>null</tt> if no function matched
+     * @throws SimpleParserException is thrown if the function is invalid
+     */
+    public SimpleFunctionFactory getFunctionFactory(String function, int index) throws SimpleParserException {
+        return resolve(root, function, 0, index, new Expression[1]);
+    }
+
+    /**
+     * Resolves the factory which creates the expression for the function.
+     *
+     * @param answer holder for the created expression
+     * @return the factory which created the expression, or <tt>null</tt> if no function matched
+     */
+    private static SimpleFunctionFactory resolve(Node node, String function, int pos, int index, Expression[] answer) {
+        if (pos == function.length()) {
+            if (node.function != null) {
+                answer[0] = node.function.createExpression(function, "", index);
+            }
+            return answer[0] != null ? node.function : null;
+        }
+
+        // try the longest match first, and then backtrack to the shorter prefixes
+        SimpleFunctionFactory factory = null;
+        Node child = node.getChild(function.charAt(pos));
+        if (child != null) {
+            factory = resolve(child, function, pos + 1, index, answer);
+        }
+        if (factory == null && node.prefix != null) {
+            answer[0] = node.prefix.createExpression(function, function.substring(pos), index);
+            if (answer[0] != null) {
+                factory = node.prefix;
+            }
+        }
+        return factory;
+    }
+
+    private Node createTrie() {
+        Node answer = new Node();
+        for (Map.Entry<String, SimpleFunctionFactory> entry : functions.entrySet()) {
+            answer.getOrCreateChild(entry.getKey()).function = entry.getValue();
+        }
+        for (Map.Entry<String, SimpleFunctionFactory> entry : prefixes.entrySet()) {
+            answer.getOrCreateChild(entry.getKey()).prefix = entry.getValue();
+        }
+        return answer;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SimpleFunctionRegistry[functions=" + functions.keySet() + ", prefixes=" + prefixes.keySet() + "]";
+    }
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private SimpleFunctionFactory function;
+        private SimpleFunctionFactory prefix;
+
+        private Node getChild(char ch) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == ch) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node getOrCreateChild(String key) {
+            Node node = this;
+            for (int i = 0; i < key.length(); i++) {
+                char ch = key.charAt(i);
+                Node child = node.getChild(ch);
+                if (child == null) {
+                    child = new Node();
+                    int len = node.keys.length;
+                    node.keys = Arrays.copyOf(node.keys, len + 1);
+                    node.children = Arrays.copyOf(node.children, len + 1);
+                    node.keys[len] = ch;
+                    node.children[len] = child;
+                }
+                node = child;
+            }
+            return node;
+        }
+    }
+
+}
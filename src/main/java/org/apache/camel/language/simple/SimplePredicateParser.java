@@ -16,23 +16,26 @@
  */
 package org.apache.camel.language.simple;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Deque;
 import java.util.List;
-import java.util.Stack;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import org.apache.camel.Expression;
 import org.apache.camel.Predicate;
-import org.apache.camel.builder.PredicateBuilder;
 import org.apache.camel.language.simple.ast.BinaryExpression;
+import org.apache.camel.language.simple.ast.CommonSubexpressions;
+import org.apache.camel.language.simple.ast.ConstantFolder;
 import org.apache.camel.language.simple.ast.DoubleQuoteEnd;
 import org.apache.camel.language.simple.ast.DoubleQuoteStart;
+import org.apache.camel.language.simple.ast.GroupEnd;
+import org.apache.camel.language.simple.ast.GroupStart;
 import org.apache.camel.language.simple.ast.SimpleFunctionEnd;
 import org.apache.camel.language.simple.ast.SimpleFunctionStart;
 import org.apache.camel.language.simple.ast.LiteralExpression;
 import org.apache.camel.language.simple.ast.LiteralNode;
 import org.apache.camel.language.simple.ast.LogicalExpression;
+import org.apache.camel.language.simple.ast.LogicalReorderer;
 import org.apache.camel.language.simple.ast.NullExpression;
 import org.apache.camel.language.simple.ast.SimpleNode;
 import org.apache.camel.language.simple.ast.SingleQuoteEnd;
@@ -44,8 +47,86 @@ import org.apache.camel.language.simple.ast.UnaryExpression;
  */
 public class SimplePredicateParser extends BaseSimpleParser {
 
+    // the precedence of the operators, where a higher precedence binds tighter
+    private static final int OR_PRECEDENCE = 1;
+    private static final int AND_PRECEDENCE = 2;
+    private static final int BINARY_PRECEDENCE = 3;
+
+    // whether to compile the predicate into a generated class
+    private final boolean compiled;
+
+    // whether to fold the sys and sysenv functions into constants
+    private boolean foldStaticFunctions;
+
+    // whether to reorder the operands of the logical operators by their estimated cost
+    private boolean reorderLogicalOperands;
+
+    // whether to reorder the operands of the logical operators at runtime
+    private boolean adaptiveLogicalOperands;
+
+    // the index of the current node when linking the operators
+    private int nodeIndex;
+
     public SimplePredicateParser(String expression) {
+        this(expression, false);
+    }
+
+    /**
+     * Creates a parser of the given input.
+     *
+     * @param expression the input string
+     * @param compiled   whether to compile the predicate into a generated class, which falls back to the
+     *                   predicate created from the AST if the predicate cannot be compiled
+     * @see SimpleCompiler
+     */
+    public SimplePredicateParser(String expression, boolean compiled) {
         super(expression);
+        this.compiled = compiled;
+    }
+
+    public boolean isFoldStaticFunctions() {
+        return foldStaticFunctions;
+    }
+
+    /**
+     * Whether the <tt>sys.</tt> and <tt>sysenv.</tt> functions should be folded into the value of the system property
+     * or environment variable when the predicate is parsed. This is disabled by default.
+     *
+     * @param foldStaticFunctions <tt>true</tt> if the system properties and environment is not changed at runtime
+     * @see ConstantFolder
+     */
+    public void setFoldStaticFunctions(boolean foldStaticFunctions) {
+        this.foldStaticFunctions = foldStaticFunctions;
+    }
+
+    public boolean isReorderLogicalOperands() {
+        return reorderLogicalOperands;
+    }
+
+    /**
+     * Whether the operands of the logical operators should be reordered by their estimated cost when the predicate
+     * is parsed, so the cheapest operands is evaluated first. This is disabled by default.
+     *
+     * @param reorderLogicalOperands <tt>true</tt> if the operands of the logical operators does not depend on each other
+     * @see LogicalReorderer
+     */
+    public void setReorderLogicalOperands(boolean reorderLogicalOperands) {
+        this.reorderLogicalOperands = reorderLogicalOperands;
+    }
+
+    public boolean isAdaptiveLogicalOperands() {
+        return adaptiveLogicalOperands;
+    }
+
+    /**
+     * Whether the operands of the logical operators should be reordered at runtime, based on their observed
+     * cost and outcome. This is disabled by default, and the predicate is not compiled when enabled.
+     *
+     * @param adaptiveLogicalOperands <tt>true</tt> if the operands of the logical operators does not depend on each other
+     * @see org.apache.camel.language.simple.ast.AdaptiveLogicalPredicate
+     */
+    public void setAdaptiveLogicalOperands(boolean adaptiveLogicalOperands) {
+        this.adaptiveLogicalOperands = adaptiveLogicalOperands;
     }
 
     public Predicate parsePredicate() {
@@ -65,19 +146,21 @@ public class SimplePredicateParser extends BaseSimpleParser {
 
         // parse using the following grammar
         nextToken();
-        while (!token.getType().isEol()) {
-            // predicate supports quotes, functions, operators and whitespaces
+        while (!token.isEol()) {
+            // predicate supports quotes, functions, operators, groups and whitespaces
             if (!singleQuotedLiteralWithFunctionsText()
                     && !doubleQuotedLiteralWithFunctionsText()
                     && !functionText()
+                    && !groupStart()
+                    && !groupEnd()
                     && !unaryOperator()
                     && !binaryOperator()
                     && !logicalOperator()
-                    && !token.getType().isWhitespace()
-                    && !token.getType().isEol()) {
+                    && !token.isWhitespace()
+                    && !token.isEol()) {
                 // okay the symbol was not one of the above, so its not supported
                 // use the previous index as that is where the problem is
-                throw new SimpleParserException("Unexpected token " + token, previousIndex);
+                throw new SimpleParserException("Unexpected token " + tokenText(), previousIndex);
             }
             // take the next token
             nextToken();
@@ -95,20 +178,32 @@ public class SimplePredicateParser extends BaseSimpleParser {
         prepareBlocks();
         // compact and stack unary expressions
         prepareUnaryExpressions();
-        // compact and stack binary expressions
-        prepareBinaryExpressions();
-        // compact and stack logical expressions
-        prepareLogicalExpressions();
+        // compact and link binary and logical expressions (and groups)
+        prepareBinaryAndLogicalExpressions();
+        // fold the parts which only depends on constant values
+        foldConstantExpressions();
+        // reorder the operands of the logical operators so the cheapest is evaluated first (if enabled)
+        reorderLogicalExpressions();
+        // share the value of the functions which is used more than once
+        CommonSubexpressions common = CommonSubexpressions.eliminate(nodes);
 
         // create and return as a Camel predicate
-        List<Predicate> predicates = createPredicates();
-        if (predicates.isEmpty()) {
-            return null;
-        } else if (predicates.size() == 1) {
-            return predicates.get(0);
-        } else {
-            return PredicateHelper.and(predicates);
+        // the adaptive predicates reorders the operands at runtime, which is not compiled
+        Predicate answer = compiled && !adaptiveLogicalOperands ? SimpleCompiler.compilePredicate(nodes, expression) : null;
+        if (answer == null) {
+            List<Predicate> predicates = createPredicates();
+            if (predicates.isEmpty()) {
+                return null;
+            } else if (predicates.size() == 1) {
+                answer = predicates.get(0);
+            } else {
+                answer = PredicateHelper.and(predicates);
+            }
+        }
+        if (common != null) {
+            answer = common.createPredicate(answer);
         }
+        return answer;
     }
 
     /**
@@ -118,7 +213,7 @@ public class SimplePredicateParser extends BaseSimpleParser {
      * parse again (tokens -> ast).
      * <p/>
      * In this parsing the balance of the blocks is checked, so that each block has a matching
-     * start and end token. For example a single quote block, or a function block etc.
+     * start and end token. For example a single quote block, a function block, or a group etc.
      */
     protected void parseTokensAndCreateNodes() {
         // we loop the tokens and create a sequence of ast nodes
@@ -131,16 +226,13 @@ public class SimplePredicateParser extends BaseSimpleParser {
         AtomicBoolean startSingle = new AtomicBoolean(false);
         AtomicBoolean startDouble = new AtomicBoolean(false);
         AtomicBoolean startFunction = new AtomicBoolean(false);
+        // groups can be nested so we need a stack to keep track of them
+        Deque<SimpleNode> groups = new ArrayDeque<SimpleNode>();
 
         LiteralNode imageToken = null;
-        for (SimpleToken token : tokens) {
-            // break if eol
-            if (token.getType().isEol()) {
-                break;
-            }
-
+        for (int i = 0; i < tokens.size(); i++) {
             // create a node from the token
-            SimpleNode node = createNode(token, startSingle, startDouble, startFunction);
+            SimpleNode node = createNode(i, startSingle, startDouble, startFunction);
             if (node != null) {
                 // keep state of last single/double
                 if (node instanceof SingleQuoteStart) {
@@ -149,6 +241,13 @@ public class SimplePredicateParser extends BaseSimpleParser {
                     lastDouble = node;
                 } else if (node instanceof SimpleFunctionStart) {
                     lastFunction = node;
+                } else if (node instanceof GroupStart) {
+                    groups.push(node);
+                } else if (node instanceof GroupEnd) {
+                    if (groups.isEmpty()) {
+                        throw new SimpleParserException("group has no starting token", tokens.getIndex(i));
+                    }
+                    groups.pop();
                 }
 
                 // a new token was created so the current image token need to be added first
@@ -165,9 +264,12 @@ public class SimplePredicateParser extends BaseSimpleParser {
             // if no token was created then its a character/whitespace/escaped symbol
             // which we need to add together in the same image
             if (imageToken == null) {
-                imageToken = new LiteralExpression(token);
+                SimpleToken first = tokens.createToken(i);
+                imageToken = new LiteralExpression(first);
+                imageToken.addText(first.getText());
+            } else {
+                imageToken.addText(tokens.getText(i));
             }
-            imageToken.addText(token.getText());
         }
 
         // append any leftover image tokens (when we reached eol)
@@ -189,26 +291,31 @@ public class SimplePredicateParser extends BaseSimpleParser {
             int index = lastFunction != null ? lastFunction.getToken().getIndex() : 0;
             throw new SimpleParserException("function has no ending token", index);
         }
+        if (!groups.isEmpty()) {
+            // use the innermost group which has no ending token
+            throw new SimpleParserException("group has no ending token", groups.peek().getToken().getIndex());
+        }
     }
 
 
     /**
      * Creates a node from the given token
      *
-     * @param token         the token
+     * @param i             the position of the token in the stream
      * @param startSingle   state of single quoted blocks
      * @param startDouble   state of double quoted blocks
      * @param startFunction state of function blocks
      * @return the created node, or <tt>null</tt> to let a default node be created instead.
      */
-    private SimpleNode createNode(SimpleToken token, AtomicBoolean startSingle, AtomicBoolean startDouble,
+    private SimpleNode createNode(int i, AtomicBoolean startSingle, AtomicBoolean startDouble,
                                   AtomicBoolean startFunction) {
-        if (token.getType().isFunctionStart()) {
+        SimpleTokenType type = tokens.getType(i);
+        if (type.isFunctionStart()) {
             startFunction.set(true);
-            return new SimpleFunctionStart(token);
-        } else if (token.getType().isFunctionEnd()) {
+            return new SimpleFunctionStart(tokens.createToken(i), isCacheDateNow());
+        } else if (type.isFunctionEnd()) {
             startFunction.set(false);
-            return new SimpleFunctionEnd(token);
+            return new SimpleFunctionEnd(tokens.createToken(i));
         }
 
         // if we are inside a function, then we do not support any other kind of tokens
@@ -218,24 +325,24 @@ public class SimplePredicateParser extends BaseSimpleParser {
         }
 
         // okay so far we also want to support quotes
-        if (token.getType().isSingleQuote()) {
+        if (type.isSingleQuote()) {
             SimpleNode answer;
             boolean start = startSingle.get();
             if (!start) {
-                answer = new SingleQuoteStart(token);
+                answer = new SingleQuoteStart(tokens.createToken(i));
             } else {
-                answer = new SingleQuoteEnd(token);
+                answer = new SingleQuoteEnd(tokens.createToken(i));
             }
             // flip state on start/end flag
             startSingle.set(!start);
             return answer;
-        } else if (token.getType().isDoubleQuote()) {
+        } else if (type.isDoubleQuote()) {
             SimpleNode answer;
             boolean start = startDouble.get();
             if (!start) {
-                answer = new DoubleQuoteStart(token);
+                answer = new DoubleQuoteStart(tokens.createToken(i));
             } else {
-                answer = new DoubleQuoteEnd(token);
+                answer = new DoubleQuoteEnd(tokens.createToken(i));
             }
             // flip state on start/end flag
             startDouble.set(!start);
@@ -248,16 +355,22 @@ public class SimplePredicateParser extends BaseSimpleParser {
             return null;
         }
 
-        // okay we are not inside a function or quote, so we want to support operators
+        // okay we are not inside a function or quote, so we want to support groups, operators
         // and the special null value as well
-        if (token.getType().isUnary()) {
-            return new UnaryExpression(token);
-        } else if (token.getType().isBinary()) {
-            return new BinaryExpression(token);
-        } else if (token.getType().isLogical()) {
-            return new LogicalExpression(token);
-        } else if (token.getType().isNullValue()) {
-            return new NullExpression(token);
+        if (type.isGroupStart()) {
+            return new GroupStart(tokens.createToken(i));
+        } else if (type.isGroupEnd()) {
+            return new GroupEnd(tokens.createToken(i));
+        } else if (type.isUnary()) {
+            return new UnaryExpression(tokens.createToken(i));
+        } else if (type.isBinary()) {
+            return new BinaryExpression(tokens.createToken(i));
+        } else if (type.isLogical()) {
+            LogicalExpression logical = new LogicalExpression(tokens.createToken(i));
+            logical.setAdaptive(adaptiveLogicalOperands);
+            return logical;
+        } else if (type.isNullValue()) {
+            return new NullExpression(tokens.createToken(i));
         }
 
         // by returning null, we will let the parser determine what to do
@@ -275,133 +388,189 @@ public class SimplePredicateParser extends BaseSimpleParser {
         // white space can be removed if its not part of a quoted text
         boolean quote = false;
 
-        Iterator<SimpleToken> it = tokens.iterator();
-        while (it.hasNext()) {
-            SimpleToken token = it.next();
-            if (token.getType().isSingleQuote()) {
+        int size = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            SimpleTokenType type = tokens.getType(i);
+            if (type.isSingleQuote()) {
                 quote = !quote;
-            } else if (token.getType().isWhitespace() && !quote) {
-                it.remove();
+            } else if (type.isWhitespace() && !quote) {
+                continue;
             }
+            tokens.move(i, size++);
         }
+        tokens.truncate(size);
     }
 
     /**
-     * Prepares binary expressions.
+     * Prepares binary and logical expressions.
+     * <p/>
+     * This process prepares the binary and logical expressions in the AST. This is done
+     * by linking the operators with both the right and left hand side nodes, to have the
+     * AST graph updated and prepared properly.
      * <p/>
-     * This process prepares the binary expressions in the AST. This is done
-     * by linking the binary operator with both the right and left hand side
-     * nodes, to have the AST graph updated and prepared properly.
+     * The operators are linked in a single pass using
+     * <a href="http://en.wikipedia.org/wiki/Operator-precedence_parser#Precedence_climbing_method">precedence climbing</a>,
+     * where the binary operators bind tighter than the logical operators, and <tt>&&</tt> binds tighter
+     * than <tt>||</tt>. Operators with the same precedence are left associative. A group enclosed
+     * by parenthesis is linked as a single operand, to allow changing the precedence.
      * <p/>
      * So when the AST node is later used to create the {@link Predicate}s
      * to be used by Camel then the AST graph has a linked and prepared
      * graph of nodes which represent the input expression.
      */
-    private void prepareBinaryExpressions() {
-        Stack<SimpleNode> stack = new Stack<SimpleNode>();
+    private void prepareBinaryAndLogicalExpressions() {
+        List<SimpleNode> answer = new ArrayList<SimpleNode>();
+        nodeIndex = 0;
+        while (nodeIndex < nodes.size()) {
+            answer.add(parseOperators(OR_PRECEDENCE));
+        }
 
-        SimpleNode left = null;
-        for (int i = 0; i < nodes.size(); i++) {
-            if (left == null) {
-                left = i > 0 ? nodes.get(i - 1) : null;
+        // replace nodes with the linked nodes
+        nodes.clear();
+        nodes.addAll(answer);
+    }
+
+    /**
+     * Links the operators with at least the given precedence, starting from the current node.
+     *
+     * @param minPrecedence the minimum precedence of the operators to link
+     * @return the node with the linked operators
+     */
+    private SimpleNode parseOperators(int minPrecedence) {
+        SimpleNode left = parseOperand();
+
+        while (nodeIndex < nodes.size()) {
+            SimpleNode operator = nodes.get(nodeIndex);
+            int precedence = getPrecedence(operator);
+            if (precedence < minPrecedence) {
+                // either not an operator, or an operator which should be linked by the caller
+                break;
             }
-            SimpleNode token = nodes.get(i);
-            SimpleNode right = i < nodes.size() - 1 ? nodes.get(i + 1) : null;
+            nodeIndex++;
 
-            if (token instanceof BinaryExpression) {
-                BinaryExpression binary = (BinaryExpression) token;
+            if (nodeIndex >= nodes.size() || getPrecedence(nodes.get(nodeIndex)) > 0 || nodes.get(nodeIndex) instanceof GroupEnd) {
+                throw new SimpleParserException(getOperatorKind(operator) + " operator " + getOperatorText(operator)
+                        + " has no right hand side token", operator.getToken().getIndex());
+            }
+            // the right hand side only links operators which binds tighter, which makes this left associative
+            SimpleNode right = parseOperators(precedence + 1);
 
-                // remember the binary operator
-                String operator = binary.getOperator().toString();
+            left = linkOperator(operator, left, right);
+        }
+        return left;
+    }
 
-                if (left == null) {
-                    throw new SimpleParserException("Binary operator " + operator + " has no left hand side token", token.getToken().getIndex());
-                }
-                if (!binary.acceptLeftNode(left)) {
-                    throw new SimpleParserException("Binary operator " + operator + " does not support left hand side token " + left.getToken(), token.getToken().getIndex());
-                }
-                if (right == null) {
-                    throw new SimpleParserException("Binary operator " + operator + " has no right hand side token", token.getToken().getIndex());
-                }
-                if (!binary.acceptRightNode(right)) {
-                    throw new SimpleParserException("Binary operator " + operator + " does not support right hand side token " + right.getToken(), token.getToken().getIndex());
-                }
+    /**
+     * Takes the operand at the current node, where a group is linked as a single operand.
+     *
+     * @return the operand
+     */
+    private SimpleNode parseOperand() {
+        SimpleNode node = nodes.get(nodeIndex);
+        if (getPrecedence(node) > 0) {
+            throw new SimpleParserException(getOperatorKind(node) + " operator " + getOperatorText(node)
+                    + " has no left hand side token", node.getToken().getIndex());
+        } else if (node instanceof GroupEnd) {
+            throw new SimpleParserException("group has no starting token", node.getToken().getIndex());
+        }
+        nodeIndex++;
 
-                // pop previous as we need to replace it with this binary operator
-                stack.pop();
-                stack.push(token);
-                // advantage after the right hand side
-                i++;
-                // this token is now the left for the next loop
-                left = token;
-            } else {
-                // clear left
-                left = null;
-                stack.push(token);
+        if (node instanceof GroupStart) {
+            if (nodeIndex >= nodes.size() || nodes.get(nodeIndex) instanceof GroupEnd) {
+                throw new SimpleParserException("group has no tokens", node.getToken().getIndex());
+            }
+            // link the operators within the group, which must then be ended
+            SimpleNode inner = parseOperators(OR_PRECEDENCE);
+            if (nodeIndex >= nodes.size()) {
+                throw new SimpleParserException("group has no ending token", node.getToken().getIndex());
             }
+            SimpleNode end = nodes.get(nodeIndex);
+            if (!(end instanceof GroupEnd)) {
+                throw new SimpleParserException("Unexpected token " + end.getToken() + " in group", end.getToken().getIndex());
+            }
+            nodeIndex++;
+            ((GroupStart) node).acceptAndAddNode(inner);
         }
+        return node;
+    }
 
-        nodes.clear();
-        nodes.addAll(stack);
+    private SimpleNode linkOperator(SimpleNode operator, SimpleNode left, SimpleNode right) {
+        String kind = getOperatorKind(operator);
+        String text = getOperatorText(operator);
+        boolean acceptLeft;
+        boolean acceptRight;
+        if (operator instanceof BinaryExpression) {
+            acceptLeft = ((BinaryExpression) operator).acceptLeftNode(left);
+            acceptRight = ((BinaryExpression) operator).acceptRightNode(right);
+        } else {
+            acceptLeft = ((LogicalExpression) operator).acceptLeftNode(left);
+            acceptRight = ((LogicalExpression) operator).acceptRightNode(right);
+        }
+        if (!acceptLeft) {
+            throw new SimpleParserException(kind + " operator " + text + " does not support left hand side token " + left.getToken(), operator.getToken().getIndex());
+        }
+        if (!acceptRight) {
+            throw new SimpleParserException(kind + " operator " + text + " does not support right hand side token " + right.getToken(), operator.getToken().getIndex());
+        }
+        return operator;
     }
 
     /**
-     * Prepares logical expressions.
-     * <p/>
-     * This process prepares the logical expressions in the AST. This is done
-     * by linking the logical operator with both the right and left hand side
-     * nodes, to have the AST graph updated and prepared properly.
-     * <p/>
-     * So when the AST node is later used to create the {@link Predicate}s
-     * to be used by Camel then the AST graph has a linked and prepared
-     * graph of nodes which represent the input expression.
+     * Gets the precedence of the node if its an operator, where a higher precedence binds tighter.
+     *
+     * @return the precedence, or <tt>0</tt> if the node is not an operator
      */
-    private void prepareLogicalExpressions() {
-        Stack<SimpleNode> stack = new Stack<SimpleNode>();
-
-        SimpleNode left = null;
-        for (int i = 0; i < nodes.size(); i++) {
-            if (left == null) {
-                left = i > 0 ? nodes.get(i - 1) : null;
-            }
-            SimpleNode token = nodes.get(i);
-            SimpleNode right = i < nodes.size() - 1 ? nodes.get(i + 1) : null;
-
-            if (token instanceof LogicalExpression) {
-                LogicalExpression logical = (LogicalExpression) token;
+    private static int getPrecedence(SimpleNode node) {
+        if (node instanceof BinaryExpression) {
+            return BINARY_PRECEDENCE;
+        } else if (node instanceof LogicalExpression) {
+            return ((LogicalExpression) node).getOperator() == LogicalOperatorType.AND ? AND_PRECEDENCE : OR_PRECEDENCE;
+        }
+        return 0;
+    }
 
-                // remember the logical operator
-                String operator = logical.getOperator().toString();
+    private static String getOperatorKind(SimpleNode node) {
+        return node instanceof BinaryExpression ? "Binary" : "Logical";
+    }
 
-                if (left == null) {
-                    throw new SimpleParserException("Logical operator " + operator + " has no left hand side token", token.getToken().getIndex());
-                }
-                if (!logical.acceptLeftNode(left)) {
-                    throw new SimpleParserException("Logical operator " + operator + " does not support left hand side token " + left.getToken(), token.getToken().getIndex());
-                }
-                if (right == null) {
-                    throw new SimpleParserException("Logical operator " + operator + " has no right hand side token", token.getToken().getIndex());
-                }
-                if (!logical.acceptRightNode(right)) {
-                    throw new SimpleParserException("Logical operator " + operator + " does not support right hand side token " + left.getToken(), token.getToken().getIndex());
-                }
+    private static String getOperatorText(SimpleNode node) {
+        if (node instanceof BinaryExpression) {
+            return ((BinaryExpression) node).getOperator().toString();
+        }
+        return ((LogicalExpression) node).getOperator().toString();
+    }
 
-                // pop previous as we need to replace it with this binary operator
-                stack.pop();
-                stack.push(token);
-                // advantage after the right hand side
-                i++;
-                // this token is now the left for the next loop
-                left = token;
-            } else {
-                // clear left
-                left = null;
-                stack.push(token);
-            }
+    /**
+     * Folds constant expressions.
+     * <p/>
+     * This process folds the nodes in the AST which only depends on constant values,
+     * such as <tt>'abc' == 'abc'</tt>, into constant values. And simplifies the logical
+     * operators which has a constant operand, so a predicate can be folded into
+     * <tt>true</tt> or <tt>false</tt> where possible.
+     */
+    private void foldConstantExpressions() {
+        ConstantFolder folder = new ConstantFolder(foldStaticFunctions);
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.set(i, folder.fold(nodes.get(i)));
         }
+    }
 
-        nodes.clear();
-        nodes.addAll(stack);
+    /**
+     * Reorders the operands of the logical operators.
+     * <p/>
+     * This process reorders the operands of a chain of the same logical operator by their estimated cost,
+     * so the cheapest operands is evaluated first. This is only done if enabled, as the operands
+     * is otherwise evaluated in the same order as in the input.
+     *
+     * @see LogicalReorderer
+     */
+    private void reorderLogicalExpressions() {
+        if (!reorderLogicalOperands) {
+            return;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.set(i, LogicalReorderer.reorder(nodes.get(i)));
+        }
     }
 
     /**
@@ -412,9 +581,8 @@ public class SimplePredicateParser extends BaseSimpleParser {
     private List<Predicate> createPredicates() {
         List<Predicate> answer = new ArrayList<Predicate>();
         for (SimpleNode node : nodes) {
-            Expression exp = node.createExpression(expression);
-            if (exp != null) {
-                Predicate predicate = PredicateBuilder.toPredicate(exp);
+            Predicate predicate = node.createPredicate(expression);
+            if (predicate != null) {
                 answer.add(predicate);
             }
         }
@@ -437,11 +605,12 @@ public class SimplePredicateParser extends BaseSimpleParser {
     // - unary operator = operator attached to the left hand side node
     // - binary operator = operator attached to both the left and right hand side nodes
     // - logical operator = operator attached to both the left and right hand side nodes
+    // - group = nodes enclosed by parenthesis to be linked as a single node
 
     protected boolean singleQuotedLiteralWithFunctionsText() {
         if (accept(TokenType.singleQuote)) {
             nextToken(TokenType.singleQuote, TokenType.eol, TokenType.functionStart, TokenType.functionEnd, TokenType.escapedValue);
-            while (!token.getType().isSingleQuote() && !token.getType().isEol()) {
+            while (!token.isSingleQuote() && !token.isEol()) {
                 // we need to loop until we find the ending single quote, or the eol
                 nextToken(TokenType.singleQuote, TokenType.eol, TokenType.functionStart, TokenType.functionEnd, TokenType.escapedValue);
             }
@@ -454,7 +623,7 @@ public class SimplePredicateParser extends BaseSimpleParser {
     protected boolean singleQuotedLiteralText() {
         if (accept(TokenType.singleQuote)) {
             nextToken(TokenType.singleQuote, TokenType.eol);
-            while (!token.getType().isSingleQuote() && !token.getType().isEol()) {
+            while (!token.isSingleQuote() && !token.isEol()) {
                 // we need to loop until we find the ending single quote, or the eol
                 nextToken(TokenType.singleQuote, TokenType.eol);
             }
@@ -467,7 +636,7 @@ public class SimplePredicateParser extends BaseSimpleParser {
     protected boolean doubleQuotedLiteralWithFunctionsText() {
         if (accept(TokenType.doubleQuote)) {
             nextToken(TokenType.doubleQuote, TokenType.eol, TokenType.functionStart, TokenType.functionEnd, TokenType.escapedValue);
-            while (!token.getType().isDoubleQuote() && !token.getType().isEol()) {
+            while (!token.isDoubleQuote() && !token.isEol()) {
                 // we need to loop until we find the ending double quote, or the eol
                 nextToken(TokenType.doubleQuote, TokenType.eol, TokenType.functionStart, TokenType.functionEnd, TokenType.escapedValue);
             }
@@ -480,7 +649,7 @@ public class SimplePredicateParser extends BaseSimpleParser {
     protected boolean doubleQuotedLiteralText() {
         if (accept(TokenType.doubleQuote)) {
             nextToken(TokenType.doubleQuote, TokenType.eol);
-            while (!token.getType().isDoubleQuote() && !token.getType().isEol()) {
+            while (!token.isDoubleQuote() && !token.isEol()) {
                 // we need to loop until we find the ending double quote, or the eol
                 nextToken(TokenType.doubleQuote, TokenType.eol);
             }
@@ -494,7 +663,7 @@ public class SimplePredicateParser extends BaseSimpleParser {
         if (accept(TokenType.functionStart)) {
             nextToken(TokenType.functionEnd, TokenType.eol);
             nextToken();
-            while (!token.getType().isFunctionEnd() && !token.getType().isEol()) {
+            while (!token.isFunctionEnd() && !token.isEol()) {
                 // we need to loop until we find the ending function quote, or the eol
                 nextToken(TokenType.functionEnd, TokenType.eol);
             }
@@ -517,7 +686,7 @@ public class SimplePredicateParser extends BaseSimpleParser {
     protected boolean binaryOperator() {
         if (accept(TokenType.binaryOperator)) {
             // remember the binary operator
-            BinaryOperatorType operatorType = BinaryOperatorType.asOperator(token.getText());
+            BinaryOperatorType operatorType = BinaryOperatorType.asOperator(tokenText());
 
             nextToken();
             // there should be at least one whitespace after the operator
@@ -561,12 +730,13 @@ public class SimplePredicateParser extends BaseSimpleParser {
                     || (booleanSupported && booleanValue())
                     || (nullSupported && nullValue())) {
                 // then after the right hand side value, there should be a whitespace if there is more tokens
+                // (or the end of the group)
                 nextToken();
-                if (!token.getType().isEol()) {
+                if (!token.isEol() && !token.isGroupEnd()) {
                     expect(TokenType.whiteSpace);
                 }
             } else {
-                throw new SimpleParserException("Binary operator " + operatorType + " does not support token " + token, token.getIndex());
+                throw new SimpleParserException("Binary operator " + operatorType + " does not support token " + tokenText(), tokenIndex);
             }
             return true;
         }
@@ -576,12 +746,17 @@ public class SimplePredicateParser extends BaseSimpleParser {
     protected boolean logicalOperator() {
         if (accept(TokenType.logicalOperator)) {
             // remember the logical operator
-            LogicalOperatorType operatorType = LogicalOperatorType.asOperator(token.getText());
+            LogicalOperatorType operatorType = LogicalOperatorType.asOperator(tokenText());
 
             nextToken();
             // there should be at least one whitespace after the operator
             expectAndAcceptMore(TokenType.whiteSpace);
 
+            // a group is parsed by the predicate grammar, as it can contain anything
+            if (accept(TokenType.groupStart)) {
+                return true;
+            }
+
             // then we expect either some quoted text, another function, or a numeric, boolean or null value
             if (singleQuotedLiteralWithFunctionsText()
                     || doubleQuotedLiteralWithFunctionsText()
@@ -590,18 +765,35 @@ public class SimplePredicateParser extends BaseSimpleParser {
                     || booleanValue()
                     || nullValue()) {
                 // then after the right hand side value, there should be a whitespace if there is more tokens
+                // (or the end of the group)
                 nextToken();
-                if (!token.getType().isEol()) {
+                if (!token.isEol() && !token.isGroupEnd()) {
                     expect(TokenType.whiteSpace);
                 }
             } else {
-                throw new SimpleParserException("Logical operator " + operatorType + " does not support token " + token, token.getIndex());
+                throw new SimpleParserException("Logical operator " + operatorType + " does not support token " + tokenText(), tokenIndex);
             }
             return true;
         }
         return false;
     }
 
+    protected boolean groupStart() {
+        if (accept(TokenType.groupStart)) {
+            // no other tokens to check so do not use nextToken
+            return true;
+        }
+        return false;
+    }
+
+    protected boolean groupEnd() {
+        if (accept(TokenType.groupEnd)) {
+            // no other tokens to check so do not use nextToken
+            return true;
+        }
+        return false;
+    }
+
     protected boolean numericValue() {
         if (accept(TokenType.numericValue)) {
             // no other tokens to check so do not use nextToken
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+
+/**
+ * A template of the <a href="http://camel.apache.org/simple.html">simple language</a>, such as
+ * <tt>Hello ${body} how are you?</tt>, which is a sequence of literal texts and functions.
+ * <p/>
+ * When evaluated as an {@link Expression} the values of the functions is evaluated first, so the template is appended
+ * together into a {@link String} of the exact length, without a builder which is expanded or sized by an estimate. The template
+ * can also be rendered directly to a {@link Writer} or another {@link Appendable}, or to an {@link OutputStream},
+ * where the literal texts and the values of the functions is written as is, without creating the
+ * {@link String} of the entire template. This is useful for large templates.
+ */
+public final class SimpleTemplate implements Expression {
+
+    private final String text;
+    // the literal texts as strings, and the functions as expressions
+    private final Object[] parts;
+    // the total length of the literal texts
+    private final int literalLength;
+
+    SimpleTemplate(String text, List<Object> parts) {
+        this.text = text;
+        this.parts = parts.toArray();
+        int length = 0;
+        for (Object part : parts) {
+            if (part instanceof String) {
+                length += ((String) part).length();
+            }
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Renders the template to the given output.
+     *
+     * @param exchange the exchange
+     * @param out      the output, such as a {@link Writer}
+     * @throws IOException is thrown if error writing to the output
+     */
+    public void render(Exchange exchange, Appendable out) throws IOException {
+        for (Object part : parts) {
+            if (part instanceof String) {
+                out.append((String) part);
+            } else {
+                // the functions is evaluated as strings and null values is not written, the same as when concatenated
+                String value = ((Expression) part).evaluate(exchange, String.class);
+                if (value != null) {
+                    out.append(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders the template to the given output stream, which is flushed but not closed.
+     *
+     * @param exchange the exchange
+     * @param out      the output stream
+     * @param charset  the charset to encode the template
+     * @throws IOException is thrown if error writing to the output stream
+     */
+    public void render(Exchange exchange, OutputStream out, Charset charset) throws IOException {
+        // the writer buffers the encoded bytes, so the parts is not written one by one to the stream
+        Writer writer = new OutputStreamWriter(out, charset);
+        render(exchange, writer);
+        writer.flush();
+    }
+
+    public <T> T evaluate(Exchange exchange, Class<T> type) {
+        // evaluate the functions first, so the characters is copied into an array of the exact length, which the
+        // result is created from, without a builder which is expanded or oversized (the String copies the array
+        // once more, which cannot be avoided using the String API)
+        // the functions is evaluated as strings and null values is not appended, the same as when rendered
+        String[] values = new String[parts.length];
+        int length = literalLength;
+        for (int i = 0; i < parts.length; i++) {
+            Object part = parts[i];
+            if (part instanceof String) {
+                values[i] = (String) part;
+            } else {
+                String value = ((Expression) part).evaluate(exchange, String.class);
+                if (value != null) {
+                    length += value.length();
+                }
+                values[i] = value;
+            }
+        }
+
+        char[] chars = new char[length];
+        int pos = 0;
+        for (String value : values) {
+            if (value != null) {
+                value.getChars(0, value.length(), chars, pos);
+                pos += value.length();
+            }
+        }
+        String answer = new String(chars);
+
+        if (type.isInstance(answer)) {
+            // no need for the type converter
+            return type.cast(answer);
+        }
+        return exchange.getContext().getTypeConverter().convertTo(type, answer);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
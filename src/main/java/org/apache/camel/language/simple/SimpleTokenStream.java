@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.util.Arrays;
+
+/**
+ * The tokens of the input, as an array of the token types and a parallel array of their positions in the input.
+ * <p/>
+ * The types is shared by the tokens, so no objects is created per token. The text of the literal tokens,
+ * such as numbers and literal text, is not kept in their types, but is taken from the input when needed.
+ * A {@link SimpleToken} is only created when a node of the AST is created from the token.
+ */
+public final class SimpleTokenStream {
+
+    // the initial number of tokens, unless the input is shorter
+    private static final int CAPACITY = 16;
+
+    private final String expression;
+    private SimpleTokenType[] types;
+    // the index and length of each token
+    private int[] positions;
+    private int size;
+
+    public SimpleTokenStream(String expression) {
+        this.expression = expression;
+        // there cannot be more tokens than characters in the input
+        int capacity = Math.min(expression.length(), CAPACITY);
+        this.types = new SimpleTokenType[capacity];
+        this.positions = new int[capacity * 2];
+    }
+
+    /**
+     * Adds a token to the end of the stream.
+     *
+     * @param type   the type, which has no value if the text is to be taken from the input
+     * @param index  the index of the token in the input
+     * @param length the length of the token in the input
+     */
+    void add(SimpleTokenType type, int index, int length) {
+        if (size == types.length) {
+            int capacity = size + (size >> 1) + 1;
+            types = Arrays.copyOf(types, capacity);
+            positions = Arrays.copyOf(positions, capacity * 2);
+        }
+        types[size] = type;
+        positions[size * 2] = index;
+        positions[size * 2 + 1] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public SimpleTokenType getType(int i) {
+        return types[i];
+    }
+
+    public int getIndex(int i) {
+        return positions[i * 2];
+    }
+
+    public int getLength(int i) {
+        return positions[i * 2 + 1];
+    }
+
+    /**
+     * Gets the text of the token, which is only taken from the input if the text is not the value of the type.
+     */
+    public String getText(int i) {
+        String value = types[i].getValue();
+        return value != null ? value : expression.substring(getIndex(i), getIndex(i) + getLength(i));
+    }
+
+    /**
+     * Creates the token, such as when a node of the AST is created from the token.
+     */
+    public SimpleToken createToken(int i) {
+        SimpleTokenType type = types[i];
+        if (type.getValue() == null) {
+            type = new SimpleTokenType(type.getType(), getText(i));
+        }
+        return new SimpleToken(type, getIndex(i), getLength(i));
+    }
+
+    /**
+     * Moves the token to another position in the stream, such as when removing tokens.
+     *
+     * @param from the position of the token
+     * @param to   the new position, which is before the token
+     */
+    void move(int from, int to) {
+        types[to] = types[from];
+        positions[to * 2] = positions[from * 2];
+        positions[to * 2 + 1] = positions[from * 2 + 1];
+    }
+
+    /**
+     * Removes the tokens from the given position to the end of the stream.
+     */
+    void truncate(int size) {
+        for (int i = size; i < this.size; i++) {
+            types[i] = null;
+        }
+        this.size = size;
+    }
+
+    void clear() {
+        truncate(0);
+    }
+
+}
@@ -89,6 +89,20 @@ public class SimpleTokenType {
         return type == TokenType.functionEnd;
     }
 
+    /**
+     * Whether the type is a group start
+     */
+    public boolean isGroupStart() {
+        return type == TokenType.groupStart;
+    }
+
+    /**
+     * Whether the type is a group end
+     */
+    public boolean isGroupEnd() {
+        return type == TokenType.groupEnd;
+    }
+
     /**
      * Whether the type is binary operator
      */
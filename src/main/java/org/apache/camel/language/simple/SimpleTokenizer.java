@@ -16,6 +16,7 @@
  */
 package org.apache.camel.language.simple;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -27,7 +28,22 @@ public class SimpleTokenizer {
     // use CopyOnWriteArrayList so we can modify it in the for loop when changing function start/end tokens
     private static final List<SimpleTokenType> knownTokens = new CopyOnWriteArrayList<SimpleTokenType>();
 
+    // prefix trie built from the known tokens, which is rebuilt when the known tokens is changed
+    private static volatile TokenTrie trie;
+
+    // shared token types for the ascii characters, to avoid creating a new type per character in the input
+    private static final SimpleTokenType[] CHARACTER_TYPES = new SimpleTokenType[128];
+    private static final SimpleTokenType[] ESCAPED_TYPES = new SimpleTokenType[128];
+    // shared token types for numbers and literal text, where the text is taken from the input
+    private static final SimpleTokenType NUMBERS = new SimpleTokenType(TokenType.numericValue, null);
+    private static final SimpleTokenType CHARACTERS = new SimpleTokenType(TokenType.character, null);
+
     static {
+        for (char ch = 0; ch < CHARACTER_TYPES.length; ch++) {
+            CHARACTER_TYPES[ch] = new SimpleTokenType(TokenType.character, String.valueOf(ch));
+            ESCAPED_TYPES[ch] = new SimpleTokenType(TokenType.escapedValue, String.valueOf(ch));
+        }
+
         // add known tokens
         knownTokens.add(new SimpleTokenType(TokenType.whiteSpace, " "));
         knownTokens.add(new SimpleTokenType(TokenType.singleQuote, "'"));
@@ -35,6 +51,8 @@ public class SimpleTokenizer {
         knownTokens.add(new SimpleTokenType(TokenType.functionStart, "${"));
         knownTokens.add(new SimpleTokenType(TokenType.functionStart, "$simple{"));
         knownTokens.add(new SimpleTokenType(TokenType.functionEnd, "}"));
+        knownTokens.add(new SimpleTokenType(TokenType.groupStart, "("));
+        knownTokens.add(new SimpleTokenType(TokenType.groupEnd, ")"));
         knownTokens.add(new SimpleTokenType(TokenType.booleanValue, "true"));
         knownTokens.add(new SimpleTokenType(TokenType.booleanValue, "false"));
         knownTokens.add(new SimpleTokenType(TokenType.nullValue, "null"));
@@ -64,6 +82,8 @@ public class SimpleTokenizer {
         // logical operators
         knownTokens.add(new SimpleTokenType(TokenType.logicalOperator, "&&"));
         knownTokens.add(new SimpleTokenType(TokenType.logicalOperator, "||"));
+
+        trie = new TokenTrie(knownTokens);
     }
 
     public static void changeFunctionStartToken(String... startToken) {
@@ -77,6 +97,8 @@ public class SimpleTokenizer {
         for (String token : startToken) {
             knownTokens.add(0, new SimpleTokenType(TokenType.functionStart, token));
         }
+
+        trie = new TokenTrie(knownTokens);
     }
 
     public static void changeFunctionEndToken(String... endToken) {
@@ -90,6 +112,8 @@ public class SimpleTokenizer {
         for (String token : endToken) {
             knownTokens.add(0, new SimpleTokenType(TokenType.functionEnd, token));
         }
+
+        trie = new TokenTrie(knownTokens);
     }
 
     /**
@@ -112,56 +136,115 @@ public class SimpleTokenizer {
      * @return the created token, will always return a token
      */
     public static SimpleToken nextToken(String expression, int index) {
-        return doNextToken(expression, index);
+        return doNextToken(expression, index, null);
     }
 
-    private static SimpleToken doNextToken(String expression, int index, TokenType... filters) {
+    /**
+     * Adds the next token to the stream, without creating a {@link SimpleToken}.
+     *
+     * @param expression  the input expression
+     * @param index       the current index
+     * @param tokens      the stream to add the token to
+     * @param filter      defines the accepted token types, or <tt>null</tt> to accept all types
+     * @return the length of the token
+     */
+    static int nextToken(String expression, int index, SimpleTokenStream tokens, TokenType[] filter) {
+        TokenTrie current = trie;
+        SimpleTokenType type = scan(current, expression, index, filter);
+        int length = length(current, expression, index, type, filter);
+        if (type == CHARACTERS && length == 1 && expression.charAt(index) < CHARACTER_TYPES.length) {
+            // a single ascii character has a shared type with the text
+            type = CHARACTER_TYPES[expression.charAt(index)];
+        }
+        tokens.add(type, index, length);
+        return length;
+    }
 
+    private static SimpleToken doNextToken(String expression, int index, TokenType[] filters) {
+        TokenTrie current = trie;
+        SimpleTokenType type = scan(current, expression, index, filters);
+        int length = length(current, expression, index, type, filters);
+        if (type == NUMBERS) {
+            return new SimpleToken(new SimpleTokenType(TokenType.numericValue, expression.substring(index, index + length)), index + length);
+        } else if (type == CHARACTERS) {
+            if (length == 1) {
+                return new SimpleToken(tokenType(CHARACTER_TYPES, TokenType.character, expression.charAt(index)), index);
+            }
+            return new SimpleToken(new SimpleTokenType(TokenType.character, expression.substring(index, index + length)), index);
+        }
+        return new SimpleToken(type, index, length);
+    }
+
+    /**
+     * Gets the type of the token at the given index, where a number or literal text is one of the shared
+     * types without a value, as the length of these tokens is found afterwards.
+     */
+    private static SimpleTokenType scan(TokenTrie current, String expression, int index, TokenType[] filters) {
         boolean escapedAllowed = acceptType(TokenType.escapedValue, filters);
         if (escapedAllowed) {
             // is it an escaped value
             if (expression.charAt(index) == '\\' && index < expression.length() - 1) {
-                String text = "" + expression.charAt(index + 1);
-                // use 2 as length for escaped as we need to jump to the next symbol
-                return new SimpleToken(new SimpleTokenType(TokenType.escapedValue, text), index, 2);
+                return tokenType(ESCAPED_TYPES, TokenType.escapedValue, expression.charAt(index + 1));
             }
         }
 
         boolean numericAllowed = acceptType(TokenType.numericValue, filters);
-        if (numericAllowed) {
-            // is it a numeric value
-            StringBuilder sb = new StringBuilder();
-            boolean digit = true;
-            while (digit && index < expression.length()) {
-                digit = Character.isDigit(expression.charAt(index));
-                if (digit) {
-                    char ch = expression.charAt(index);
-                    sb.append(ch);
-                    index++;
-                }
-            }
-            if (sb.length() > 0) {
-                return new SimpleToken(new SimpleTokenType(TokenType.numericValue, sb.toString()), index);
-            }
+        if (numericAllowed && Character.isDigit(expression.charAt(index))) {
+            return NUMBERS;
         }
 
         // it could be any of the known tokens
-        String text = expression.substring(index);
-        for (SimpleTokenType token : knownTokens) {
-            if (acceptType(token.getType(), filters)) {
-                if (text.startsWith(token.getValue())) {
-                    return new SimpleToken(token, index);
-                }
-            }
+        SimpleTokenType known = current.match(expression, index, filters);
+        if (known != null) {
+            return known;
         }
 
         // fallback and create a character token
-        char ch = expression.charAt(index);
-        SimpleToken token = new SimpleToken(new SimpleTokenType(TokenType.character, "" + ch), index);
-        return token;
+        return CHARACTERS;
+    }
+
+    private static int length(TokenTrie current, String expression, int index, SimpleTokenType type, TokenType[] filters) {
+        int end = index + 1;
+        if (type == NUMBERS) {
+            // the numeric value includes the following digits
+            while (end < expression.length() && Character.isDigit(expression.charAt(end))) {
+                end++;
+            }
+        } else if (type == CHARACTERS) {
+            // the character token includes the following characters as long they cannot be
+            // the start of any of the accepted tokens (eg literal text)
+            int mask = typeMask(filters);
+            while (end < expression.length() && !current.isTokenStart(expression.charAt(end), mask)) {
+                end++;
+            }
+        } else if (type.getType() == TokenType.escapedValue) {
+            // use 2 as length for escaped as we need to jump to the next symbol
+            return 2;
+        } else {
+            return type.getValue().length();
+        }
+        return end - index;
     }
 
-    private static boolean acceptType(TokenType type, TokenType... filters) {
+    private static int typeMask(TokenType[] filters) {
+        if (filters == null || filters.length == 0) {
+            return -1;
+        }
+        int mask = 0;
+        for (TokenType filter : filters) {
+            mask |= 1 << filter.ordinal();
+        }
+        return mask;
+    }
+
+    private static SimpleTokenType tokenType(SimpleTokenType[] shared, TokenType type, char ch) {
+        if (ch < shared.length) {
+            return shared[ch];
+        }
+        return new SimpleTokenType(type, String.valueOf(ch));
+    }
+
+    private static boolean acceptType(TokenType type, TokenType[] filters) {
         if (filters == null || filters.length == 0) {
             return true;
         }
@@ -173,4 +256,109 @@ public class SimpleTokenizer {
         return false;
     }
 
+    /**
+     * A prefix trie of the known tokens, which matches the tokens in place on the input.
+     * <p/>
+     * The known tokens is matched in the order they are defined, so if more tokens
+     * matches the input, then the first defined token is used.
+     */
+    private static final class TokenTrie {
+
+        private final Node root = new Node();
+        // the token types which can start with the given ascii character
+        private final int[] startMasks = new int[128];
+
+        private TokenTrie(List<SimpleTokenType> tokens) {
+            int priority = 0;
+            for (SimpleTokenType token : tokens) {
+                String value = token.getValue();
+                Node node = root;
+                for (int i = 0; i < value.length(); i++) {
+                    node = node.getOrCreateChild(value.charAt(i));
+                }
+                node.addToken(token, priority++);
+
+                char first = value.charAt(0);
+                if (first < startMasks.length) {
+                    startMasks[first] |= 1 << token.getType().ordinal();
+                }
+            }
+
+            // escaped and numeric values are not known tokens, but they are tokens as well
+            startMasks['\\'] |= 1 << TokenType.escapedValue.ordinal();
+            for (char ch = '0'; ch <= '9'; ch++) {
+                startMasks[ch] |= 1 << TokenType.numericValue.ordinal();
+            }
+        }
+
+        /**
+         * Whether the given character may be the start of a token of the accepted types
+         */
+        private boolean isTokenStart(char ch, int mask) {
+            if (ch < startMasks.length) {
+                return (startMasks[ch] & mask) != 0;
+            }
+            // be conservative for the non ascii characters
+            return Character.isDigit(ch) || root.getChild(ch) != null;
+        }
+
+        private SimpleTokenType match(String expression, int index, TokenType[] filters) {
+            SimpleTokenType answer = null;
+            int best = Integer.MAX_VALUE;
+
+            Node node = root;
+            for (int i = index; i < expression.length(); i++) {
+                node = node.getChild(expression.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                for (int j = 0; j < node.tokens.length; j++) {
+                    if (node.priorities[j] < best && acceptType(node.tokens[j].getType(), filters)) {
+                        answer = node.tokens[j];
+                        best = node.priorities[j];
+                    }
+                }
+            }
+            return answer;
+        }
+    }
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private SimpleTokenType[] tokens = new SimpleTokenType[0];
+        private int[] priorities = new int[0];
+
+        private Node getChild(char ch) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == ch) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node getOrCreateChild(char ch) {
+            Node answer = getChild(ch);
+            if (answer == null) {
+                answer = new Node();
+                int len = keys.length;
+                keys = Arrays.copyOf(keys, len + 1);
+                children = Arrays.copyOf(children, len + 1);
+                keys[len] = ch;
+                children[len] = answer;
+            }
+            return answer;
+        }
+
+        private void addToken(SimpleTokenType token, int priority) {
+            int len = tokens.length;
+            tokens = Arrays.copyOf(tokens, len + 1);
+            priorities = Arrays.copyOf(priorities, len + 1);
+            tokens[len] = token;
+            priorities[len] = priority;
+        }
+    }
+
 }
@@ -25,6 +25,7 @@ public enum TokenType {
     escapedValue, booleanValue, numericValue, nullValue,
     singleQuote, doubleQuote,
     functionStart, functionEnd,
+    groupStart, groupEnd,
     binaryOperator, unaryOperator, logicalOperator,
     eol;
 
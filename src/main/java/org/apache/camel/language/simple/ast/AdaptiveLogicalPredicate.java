@@ -0,0 +1,254 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Predicate;
+import org.apache.camel.language.simple.LogicalOperatorType;
+
+/**
+ * A {@link Predicate} for a chain of the same logical operator, which reorders its operands at runtime
+ * based on the observed cost and outcome of each operand.
+ * <p/>
+ * A sample of the evaluations is measured, where the time spent and whether the operand matched is counted
+ * per operand. The counters is striped by thread, so many threads can evaluate the predicate concurrently
+ * without contending on the same counters. After a number of sampled evaluations, the operands is reordered
+ * to minimize the expected time of an evaluation. For <tt>&amp;&amp;</tt> the operands is ordered by their
+ * cost divided by the rate they do not match, and for <tt>||</tt> by their cost divided by the rate they match.
+ * Older samples is given less weight, so the order follows changes in the messages.
+ * <p/>
+ * Operands which may have side effects are never moved, and the other operands is not moved across them.
+ * Operands which have not been evaluated since the last reorder, keep their place after the other operands.
+ */
+public final class AdaptiveLogicalPredicate implements Predicate {
+
+    // the number of stripes for the counters, which must be a power of two
+    private static final int STRIPES = 8;
+    // the number of longs in a cache line, used as padding between the stripes
+    private static final int PADDING = 8;
+    // every 16th evaluation per stripe is measured
+    private static final int SAMPLE_MASK = 15;
+    // reorder after this number of measured evaluations, which is checked when a stripe has its share of them
+    private static final int REORDER_SAMPLES = 256;
+    private static final int REORDER_MASK = (SAMPLE_MASK + 1) * REORDER_SAMPLES / STRIPES - 1;
+
+    // the counters per operand
+    private static final int EVALUATED = 0;
+    private static final int MATCHED = 1;
+    private static final int NANOS = 2;
+    private static final int COUNTERS = 3;
+
+    private final boolean and;
+    private final Predicate[] operands;
+    private final String[] texts;
+    private final boolean[] fixed;
+    private final int stride;
+    private final AtomicLongArray counters;
+    private final AtomicLongArray evaluations = new AtomicLongArray(STRIPES * PADDING);
+    private final AtomicBoolean reordering = new AtomicBoolean();
+    // the totals from the previous reorder, and the weighted statistics (guarded by reordering)
+    private long previousEvaluations;
+    private final long[] previous;
+    private final double[] statistics;
+    private volatile int[] order;
+
+    /**
+     * Creates the predicate.
+     *
+     * @param operator the logical operator
+     * @param operands the operands in the initial order
+     * @param texts    the text of the operands, used for diagnostics
+     * @param fixed    whether the operand may have side effects, and must not be moved
+     */
+    public AdaptiveLogicalPredicate(LogicalOperatorType operator, Predicate[] operands, String[] texts, boolean[] fixed) {
+        this.and = operator == LogicalOperatorType.AND;
+        this.operands = operands;
+        this.texts = texts;
+        this.fixed = fixed;
+        // pad the counters of each stripe to separate cache lines
+        this.stride = ((operands.length * COUNTERS + PADDING - 1) / PADDING + 1) * PADDING;
+        this.counters = new AtomicLongArray(STRIPES * stride);
+        this.previous = new long[operands.length * COUNTERS];
+        this.statistics = new double[operands.length * COUNTERS];
+
+        int[] initial = new int[operands.length];
+        for (int i = 0; i < initial.length; i++) {
+            initial[i] = i;
+        }
+        this.order = initial;
+    }
+
+    public boolean matches(Exchange exchange) {
+        int[] current = order;
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+
+        long count = evaluations.incrementAndGet(stripe * PADDING);
+        if ((count & SAMPLE_MASK) != 0) {
+            for (int index : current) {
+                boolean matches = operands[index].matches(exchange);
+                if (matches != and) {
+                    // short circuit, eg false for && or true for ||
+                    return matches;
+                }
+            }
+            return and;
+        }
+
+        boolean answer = and;
+        int base = stripe * stride;
+        for (int index : current) {
+            long start = System.nanoTime();
+            boolean matches = operands[index].matches(exchange);
+            long time = System.nanoTime() - start;
+
+            int offset = base + index * COUNTERS;
+            counters.incrementAndGet(offset + EVALUATED);
+            if (matches) {
+                counters.incrementAndGet(offset + MATCHED);
+            }
+            counters.addAndGet(offset + NANOS, time);
+
+            if (matches != and) {
+                answer = matches;
+                break;
+            }
+        }
+
+        if ((count & REORDER_MASK) == 0) {
+            reorder();
+        }
+        return answer;
+    }
+
+    /**
+     * Gets the text of the operands in the order they are currently evaluated.
+     */
+    public List<String> getOrder() {
+        int[] current = order;
+        List<String> answer = new ArrayList<String>(current.length);
+        for (int index : current) {
+            answer.add(texts[index]);
+        }
+        return answer;
+    }
+
+    /**
+     * Reorders the operands based on the samples since the last reorder.
+     */
+    void reorder() {
+        // only one thread reorders at a time, and the other threads continue to use the current order
+        if (!reordering.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long evaluated = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                evaluated += evaluations.get(stripe * PADDING);
+            }
+            // when only some of the stripes is used, wait until there is enough samples in total
+            if (evaluated - previousEvaluations < (SAMPLE_MASK + 1) * REORDER_SAMPLES) {
+                return;
+            }
+            previousEvaluations = evaluated;
+
+            for (int i = 0; i < previous.length; i++) {
+                long total = 0;
+                for (int stripe = 0; stripe < STRIPES; stripe++) {
+                    total += counters.get(stripe * stride + i);
+                }
+                // halve the weight of the older samples
+                statistics[i] = statistics[i] / 2 + (total - previous[i]);
+                previous[i] = total;
+            }
+
+            final double[] ranks = new double[operands.length];
+            for (int i = 0; i < operands.length; i++) {
+                ranks[i] = rank(i);
+            }
+
+            Integer[] sorted = new Integer[operands.length];
+            int[] current = order;
+            for (int i = 0; i < current.length; i++) {
+                sorted[i] = current[i];
+            }
+            Comparator<Integer> byRank = new Comparator<Integer>() {
+                public int compare(Integer o1, Integer o2) {
+                    return Double.compare(ranks[o1], ranks[o2]);
+                }
+            };
+            // sort the operands between the operands which must not be moved
+            List<Integer> list = Arrays.asList(sorted);
+            int start = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (fixed[sorted[i]]) {
+                    Collections.sort(list.subList(start, i), byRank);
+                    start = i + 1;
+                }
+            }
+            Collections.sort(list.subList(start, sorted.length), byRank);
+
+            int[] answer = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                answer[i] = sorted[i];
+            }
+            order = answer;
+        } finally {
+            reordering.set(false);
+        }
+    }
+
+    /**
+     * The rank of the operand, where the operands with the lowest rank should be evaluated first.
+     */
+    private double rank(int index) {
+        double evaluated = statistics[index * COUNTERS + EVALUATED];
+        if (evaluated == 0) {
+            // no samples so keep it last
+            return Double.MAX_VALUE;
+        }
+        double cost = Math.max(1, statistics[index * COUNTERS + NANOS] / evaluated);
+        double matched = statistics[index * COUNTERS + MATCHED] / evaluated;
+        // the rate which the operand short circuits the evaluation
+        double rate = and ? 1 - matched : matched;
+        if (rate <= 0) {
+            // never short circuits, so it should be evaluated after the others
+            return Double.MAX_VALUE / 2;
+        }
+        return cost / rate;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (String text : getOrder()) {
+            if (sb.length() > 0) {
+                sb.append(and ? " && " : " || ");
+            }
+            sb.append(text);
+        }
+        return sb.toString();
+    }
+
+}
@@ -16,6 +16,10 @@
  */
 package org.apache.camel.language.simple.ast;
 
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.builder.PredicateBuilder;
 import org.apache.camel.language.simple.SimpleToken;
 
 /**
@@ -33,6 +37,41 @@ public abstract class BaseSimpleNode implements SimpleNode {
         return token;
     }
 
+    public Predicate createPredicate(String expression) {
+        Expression answer = createExpression(expression);
+        if (answer != null) {
+            return PredicateBuilder.toPredicate(answer);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Creates an {@link Expression} which evaluates the given {@link Predicate}, for nodes
+     * which are predicates by nature, such as operators.
+     *
+     * @param predicate the predicate
+     * @return the expression returning the result of the predicate as the requested type
+     */
+    protected Expression toExpression(final Predicate predicate) {
+        return new Expression() {
+            @Override
+            public <T> T evaluate(Exchange exchange, Class<T> type) {
+                boolean answer = predicate.matches(exchange);
+                if (type == Boolean.class || type == Object.class) {
+                    // no need for the type converter
+                    return type.cast(answer);
+                }
+                return exchange.getContext().getTypeConverter().convertTo(type, answer);
+            }
+
+            @Override
+            public String toString() {
+                return BaseSimpleNode.this.toString();
+            }
+        };
+    }
+
     @Override
     public String toString() {
         return token.getText();
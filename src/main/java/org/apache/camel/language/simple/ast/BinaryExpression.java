@@ -16,15 +16,23 @@
  */
 package org.apache.camel.language.simple.ast;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+import org.apache.camel.CamelContext;
 import org.apache.camel.Exchange;
 import org.apache.camel.Expression;
 import org.apache.camel.Predicate;
+import org.apache.camel.TypeConverter;
 import org.apache.camel.builder.ExpressionBuilder;
 import org.apache.camel.builder.PredicateBuilder;
 import org.apache.camel.builder.ValueBuilder;
@@ -40,7 +48,13 @@ import org.apache.camel.util.ObjectHelper;
 public class BinaryExpression extends BaseSimpleNode {
 
     // this is special for the range operator where you define the range as from..to (where from and to are numbers)
-    private static final Pattern RANGE_PATTERN = Pattern.compile("^(\\d+)(\\.\\.)(\\d+)$");
+    static final Pattern RANGE_PATTERN = Pattern.compile("^(\\d+)(\\.\\.)(\\d+)$");
+
+    // the maximum number of compiled patterns to keep when the regex operator has a dynamic right hand side
+    private static final int PATTERN_CACHE_SIZE = 100;
+
+    // the maximum number of class names to keep resolved classes for when the is operator has a dynamic right hand side
+    private static final int CLASS_CACHE_SIZE = 20;
 
     private final BinaryOperatorType operator;
     private SimpleNode left;
@@ -66,68 +80,169 @@ public class BinaryExpression extends BaseSimpleNode {
         return true;
     }
 
+    public SimpleNode getLeft() {
+        return left;
+    }
+
+    public SimpleNode getRight() {
+        return right;
+    }
+
     public BinaryOperatorType getOperator() {
         return operator;
     }
 
     @Override
     public Expression createExpression(String expression) {
+        return toExpression(createPredicate(expression));
+    }
+
+    @Override
+    public Predicate createPredicate(String expression) {
         ObjectHelper.notNull(left, "left node", this);
         ObjectHelper.notNull(right, "right node", this);
 
         final Expression leftExp = left.createExpression(expression);
         final Expression rightExp = right.createExpression(expression);
 
+        // if the right hand side is a literal, then the comparison can be specialized for the type of the left hand side
+        String literal = getLiteralText(right);
+        if (literal != null && isComparison(operator)) {
+            return createLiteralComparePredicate(leftExp, literal);
+        }
+
         if (operator == BinaryOperatorType.EQ) {
-            return createExpression(leftExp, rightExp, PredicateBuilder.isEqualTo(leftExp, rightExp));
+            return createPredicate(PredicateBuilder.isEqualTo(leftExp, rightExp));
         } else if (operator == BinaryOperatorType.GT) {
-            return createExpression(leftExp, rightExp, PredicateBuilder.isGreaterThan(leftExp, rightExp));
+            return createPredicate(PredicateBuilder.isGreaterThan(leftExp, rightExp));
         } else if (operator == BinaryOperatorType.GTE) {
-            return createExpression(leftExp, rightExp, PredicateBuilder.isGreaterThanOrEqualTo(leftExp, rightExp));
+            return createPredicate(PredicateBuilder.isGreaterThanOrEqualTo(leftExp, rightExp));
         } else if (operator == BinaryOperatorType.LT) {
-            return createExpression(leftExp, rightExp, PredicateBuilder.isLessThan(leftExp, rightExp));
+            return createPredicate(PredicateBuilder.isLessThan(leftExp, rightExp));
         } else if (operator == BinaryOperatorType.LTE) {
-            return createExpression(leftExp, rightExp, PredicateBuilder.isLessThanOrEqualTo(leftExp, rightExp));
+            return createPredicate(PredicateBuilder.isLessThanOrEqualTo(leftExp, rightExp));
         } else if (operator == BinaryOperatorType.NOT_EQ) {
-            return createExpression(leftExp, rightExp, PredicateBuilder.isNotEqualTo(leftExp, rightExp));
+            return createPredicate(PredicateBuilder.isNotEqualTo(leftExp, rightExp));
         } else if (operator == BinaryOperatorType.CONTAINS) {
-            return createExpression(leftExp, rightExp, PredicateBuilder.contains(leftExp, rightExp));
+            return createPredicate(PredicateBuilder.contains(leftExp, rightExp));
         } else if (operator == BinaryOperatorType.NOT_CONTAINS) {
-            return createExpression(leftExp, rightExp, PredicateBuilder.not(PredicateBuilder.contains(leftExp, rightExp)));
+            return createPredicate(PredicateBuilder.not(PredicateBuilder.contains(leftExp, rightExp)));
         } else if (operator == BinaryOperatorType.IS || operator == BinaryOperatorType.NOT_IS) {
-            return createIsExpression(expression, leftExp, rightExp);
+            return createIsPredicate(expression, leftExp, rightExp);
         } else if (operator == BinaryOperatorType.REGEX || operator == BinaryOperatorType.NOT_REGEX) {
-            return createRegexExpression(leftExp, rightExp);
+            return createRegexPredicate(leftExp, rightExp);
         } else if (operator == BinaryOperatorType.IN || operator == BinaryOperatorType.NOT_IN) {
-            return createInExpression(leftExp, rightExp);
+            return createInPredicate(leftExp, rightExp);
         } else if (operator == BinaryOperatorType.RANGE || operator == BinaryOperatorType.NOT_RANGE) {
-            return createRangeExpression(expression, leftExp, rightExp);
+            return createRangePredicate(expression, leftExp, rightExp);
         }
 
         throw new SimpleParserException("Unknown binary operator " + operator, token.getIndex());
     }
 
-    private Expression createIsExpression(final String expression, final Expression leftExp, final Expression rightExp) {
-        return new Expression() {
+    private static boolean isComparison(BinaryOperatorType operator) {
+        return operator == BinaryOperatorType.EQ || operator == BinaryOperatorType.NOT_EQ
+                || operator == BinaryOperatorType.GT || operator == BinaryOperatorType.GTE
+                || operator == BinaryOperatorType.LT || operator == BinaryOperatorType.LTE;
+    }
+
+    /**
+     * Creates the comparison of the left hand side with the literal on the right hand side, which can be evaluated
+     * without the predicate created from this node, such as by the {@link org.apache.camel.language.simple.SimpleCompiler}.
+     *
+     * @return the comparison, or <tt>null</tt> if the operator is not a comparison or the right hand side is not a literal
+     */
+    public LiteralComparison createLiteralComparison() {
+        String literal = getLiteralText(right);
+        if (literal == null || !isComparison(operator)) {
+            return null;
+        }
+        return new LiteralComparison(operator, literal);
+    }
+
+    private Predicate createLiteralComparePredicate(final Expression leftExp, final String text) {
+        final LiteralComparison comparison = new LiteralComparison(operator, text);
+
+        return new Predicate() {
             @Override
-            public <T> T evaluate(Exchange exchange, Class<T> type) {
-                Predicate predicate;
-                String name = rightExp.evaluate(exchange, String.class);
+            public boolean matches(Exchange exchange) {
+                return comparison.matches(exchange, leftExp.evaluate(exchange, Object.class));
+            }
+
+            @Override
+            public String toString() {
+                return left + " " + token.getText() + " " + right;
+            }
+        };
+    }
+
+    private static int compare(long num, long other) {
+        return num < other ? -1 : (num == other ? 0 : 1);
+    }
+
+    /**
+     * Whether the text is a whole number which can be parsed as a long, without throwing an exception
+     * when the text is not a number.
+     */
+    private static boolean isLong(String text) {
+        int start = text.startsWith("-") || text.startsWith("+") ? 1 : 0;
+        // at most 18 digits, so the number cannot be too big for a long
+        if (text.length() == start || text.length() - start > 18) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Long parseLong(String text) {
+        try {
+            return Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Predicate createIsPredicate(final String expression, final Expression leftExp, final Expression rightExp) {
+        // if the right hand side is a literal, then the class name is known up front
+        String literalName = getLiteralText(right);
+        final ClassCache literalClass = literalName != null ? new ClassCache(literalName) : null;
+        // otherwise keep the resolved classes of the class names, which is read without locking
+        final Map<String, ClassCache> classes = new ConcurrentHashMap<String, ClassCache>();
+
+        return new Predicate() {
+            @Override
+            public boolean matches(Exchange exchange) {
+                ClassCache cache = literalClass;
+                String name = cache != null ? cache.name : rightExp.evaluate(exchange, String.class);
                 if (name == null || "null".equals(name)) {
                     throw new SimpleIllegalSyntaxException(expression, right.getToken().getIndex(), operator + " operator cannot accept null. A class type must be provided.");
                 }
-                Class<?> rightType = exchange.getContext().getClassResolver().resolveClass(name);
+                if (cache == null) {
+                    cache = classes.get(name);
+                    if (cache == null) {
+                        cache = new ClassCache(name);
+                        // when there is too many class names then the classes of the further names is not kept
+                        if (classes.size() < CLASS_CACHE_SIZE) {
+                            classes.put(name, cache);
+                        }
+                    }
+                }
+                Class<?> rightType = cache.resolveClass(exchange.getContext());
                 if (rightType == null) {
                     throw new SimpleIllegalSyntaxException(expression, right.getToken().getIndex(), operator + " operator cannot find class with name: " + name);
                 }
 
-                predicate = PredicateBuilder.isInstanceOf(leftExp, rightType);
+                Object value = leftExp.evaluate(exchange, Object.class);
+                boolean answer = rightType.isInstance(value);
                 if (operator == BinaryOperatorType.NOT_IS) {
-                    predicate = PredicateBuilder.not(predicate);
+                    answer = !answer;
                 }
-                boolean answer = predicate.matches(exchange);
-
-                return exchange.getContext().getTypeConverter().convertTo(type, answer);
+                return answer;
             }
 
             @Override
@@ -137,17 +252,48 @@ public class BinaryExpression extends BaseSimpleNode {
         };
     }
 
-    private Expression createRegexExpression(final Expression leftExp, final Expression rightExp) {
-        return new Expression() {
+    private Predicate createRegexPredicate(final Expression leftExp, final Expression rightExp) {
+        // reg ex should use String pattern, so if the right hand side is a literal we can compile the pattern up front
+        String text = getLiteralText(right);
+        if (text != null) {
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(text);
+            } catch (PatternSyntaxException e) {
+                throw new SimpleParserException(operator + " operator is not valid. The right hand side is not a valid regular expression: "
+                        + e.getDescription(), right.getToken().getIndex());
+            }
+            Predicate predicate = PredicateBuilder.regex(leftExp, pattern);
+            if (operator == BinaryOperatorType.NOT_REGEX) {
+                predicate = PredicateBuilder.not(predicate);
+            }
+            return createPredicate(predicate);
+        }
+
+        // the right hand side is dynamic so keep a cache of the compiled patterns, which is read without locking
+        final Map<String, Pattern> patterns = new ConcurrentHashMap<String, Pattern>();
+        return new Predicate() {
             @Override
-            public <T> T evaluate(Exchange exchange, Class<T> type) {
-                // reg ex should use String pattern, so we evaluate the right hand side as a String
-                Predicate predicate = PredicateBuilder.regex(leftExp, rightExp.evaluate(exchange, String.class));
+            public boolean matches(Exchange exchange) {
+                String regex = rightExp.evaluate(exchange, String.class);
+                Pattern pattern = patterns.get(regex);
+                if (pattern == null) {
+                    pattern = Pattern.compile(regex);
+                    if (patterns.size() >= PATTERN_CACHE_SIZE) {
+                        // too many different patterns to keep them all, so start over
+                        patterns.clear();
+                    }
+                    patterns.put(regex, pattern);
+                }
+                boolean answer = false;
+                String value = leftExp.evaluate(exchange, String.class);
+                if (value != null) {
+                    answer = pattern.matcher(value).matches();
+                }
                 if (operator == BinaryOperatorType.NOT_REGEX) {
-                    predicate = PredicateBuilder.not(predicate);
+                    answer = !answer;
                 }
-                boolean answer = predicate.matches(exchange);
-                return exchange.getContext().getTypeConverter().convertTo(type, answer);
+                return answer;
             }
 
             @Override
@@ -157,10 +303,32 @@ public class BinaryExpression extends BaseSimpleNode {
         };
     }
 
-    private Expression createInExpression(final Expression leftExp, final Expression rightExp) {
-        return new Expression() {
+    private Predicate createInPredicate(final Expression leftExp, final Expression rightExp) {
+        // if the right hand side is a literal, then the values can be split up front into a set
+        String text = getLiteralText(right);
+        if (text != null) {
+            final InValues values = new InValues(text);
+            return new Predicate() {
+                @Override
+                public boolean matches(Exchange exchange) {
+                    Object value = leftExp.evaluate(exchange, Object.class);
+                    boolean answer = values.contains(exchange.getContext().getTypeConverter(), value);
+                    if (operator == BinaryOperatorType.NOT_IN) {
+                        answer = !answer;
+                    }
+                    return answer;
+                }
+
+                @Override
+                public String toString() {
+                    return left + " " + token.getText() + " " + right;
+                }
+            };
+        }
+
+        return new Predicate() {
             @Override
-            public <T> T evaluate(Exchange exchange, Class<T> type) {
+            public boolean matches(Exchange exchange) {
                 // okay the in operator is a bit more complex as we need to build a list of values
                 // from the right hand side expression.
                 // each element on the right hand side must be separated by comma (default for create iterator)
@@ -175,8 +343,7 @@ public class BinaryExpression extends BaseSimpleNode {
                 if (operator == BinaryOperatorType.NOT_IN) {
                     predicate = PredicateBuilder.not(predicate);
                 }
-                boolean answer = predicate.matches(exchange);
-                return exchange.getContext().getTypeConverter().convertTo(type, answer);
+                return predicate.matches(exchange);
             }
 
             @Override
@@ -186,10 +353,23 @@ public class BinaryExpression extends BaseSimpleNode {
         };
     }
 
-    private Expression createRangeExpression(final String expression, final Expression leftExp, final Expression rightExp) {
-        return new Expression() {
+    private Predicate createRangePredicate(final String expression, final Expression leftExp, final Expression rightExp) {
+        // if the right hand side is a literal, then the range can be parsed up front
+        String text = getLiteralText(right);
+        if (text != null) {
+            Matcher matcher = RANGE_PATTERN.matcher(text);
+            if (!matcher.matches()) {
+                throw new SimpleParserException(operator + " operator is not valid. Valid syntax:'from..to' (where from and to are numbers).", right.getToken().getIndex());
+            }
+            Predicate answer = createRangePredicate(leftExp, matcher.group(1), matcher.group(3));
+            if (answer != null) {
+                return answer;
+            }
+        }
+
+        return new Predicate() {
             @Override
-            public <T> T evaluate(Exchange exchange, Class<T> type) {
+            public boolean matches(Exchange exchange) {
                 Predicate predicate;
 
                 String range = rightExp.evaluate(exchange, String.class);
@@ -209,8 +389,7 @@ public class BinaryExpression extends BaseSimpleNode {
                     predicate = PredicateBuilder.not(predicate);
                 }
 
-                boolean answer = predicate.matches(exchange);
-                return exchange.getContext().getTypeConverter().convertTo(type, answer);
+                return predicate.matches(exchange);
             }
 
             @Override
@@ -220,12 +399,42 @@ public class BinaryExpression extends BaseSimpleNode {
         };
     }
 
-    private Expression createExpression(final Expression left, final Expression right, final Predicate predicate) {
-        return new Expression() {
+    private Predicate createRangePredicate(final Expression leftExp, final String fromText, final String toText) {
+        final long from;
+        final long to;
+        try {
+            from = Long.parseLong(fromText);
+            to = Long.parseLong(toText);
+        } catch (NumberFormatException e) {
+            // the numbers are too big for a long
+            return null;
+        }
+
+        return new Predicate() {
             @Override
-            public <T> T evaluate(Exchange exchange, Class<T> type) {
-                boolean answer = predicate.matches(exchange);
-                return exchange.getContext().getTypeConverter().convertTo(type, answer);
+            public boolean matches(Exchange exchange) {
+                boolean answer;
+
+                Object value = leftExp.evaluate(exchange, Object.class);
+                if (value == null) {
+                    answer = false;
+                } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                    long num = ((Number) value).longValue();
+                    answer = num >= from && num <= to;
+                } else if (value instanceof String && isLong((String) value)) {
+                    // the type coercion would also compare the text as a long
+                    long num = Long.parseLong((String) value);
+                    answer = num >= from && num <= to;
+                } else {
+                    // use type coercion as the value is not a whole number
+                    TypeConverter converter = exchange.getContext().getTypeConverter();
+                    answer = ObjectHelper.typeCoerceCompare(converter, value, fromText) >= 0
+                            && ObjectHelper.typeCoerceCompare(converter, value, toText) <= 0;
+                }
+                if (operator == BinaryOperatorType.NOT_RANGE) {
+                    answer = !answer;
+                }
+                return answer;
             }
 
             @Override
@@ -235,4 +444,329 @@ public class BinaryExpression extends BaseSimpleNode {
         };
     }
 
+    private Predicate createPredicate(final Predicate predicate) {
+        return new Predicate() {
+            @Override
+            public boolean matches(Exchange exchange) {
+                return predicate.matches(exchange);
+            }
+
+            @Override
+            public String toString() {
+                return left + " " + token.getText() + " " + right;
+            }
+        };
+    }
+
+    /**
+     * Gets the text of the given node, if the node is a literal without any embedded functions.
+     *
+     * @param node the node
+     * @return the literal text, or <tt>null</tt> if the node is not a literal
+     */
+    static String getLiteralText(SimpleNode node) {
+        if (node instanceof SingleQuoteStart) {
+            return getLiteralText(((SingleQuoteStart) node).getBlock());
+        } else if (node instanceof DoubleQuoteStart) {
+            return getLiteralText(((DoubleQuoteStart) node).getBlock());
+        } else if (node instanceof LiteralNode && !(node instanceof SimpleFunctionExpression)) {
+            return ((LiteralNode) node).getText();
+        }
+        return null;
+    }
+
+    private static String getLiteralText(CompositeNodes block) {
+        StringBuilder sb = new StringBuilder();
+        for (SimpleNode child : block.getChildren()) {
+            String text = getLiteralText(child);
+            if (text == null) {
+                return null;
+            }
+            sb.append(text);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The comparison with the literal on the right hand side of a comparison operator, where the literal
+     * is parsed up front as a number.
+     * <p/>
+     * The values on the left hand side is compared with the same result as
+     * {@link ObjectHelper#typeCoerceEquals(TypeConverter, Object, Object)} and
+     * {@link ObjectHelper#typeCoerceCompare(TypeConverter, Object, Object)}, but without the
+     * {@link TypeConverter} for the types which can be compared directly with the literal.
+     * The kind of the last type on the left hand side is cached, as it is usually the same type.
+     */
+    public static final class LiteralComparison {
+
+        // use type coercion
+        private static final int GENERIC = 0;
+        // compare the string values, or as numbers if the left hand side is a numeric string
+        private static final int STRING = 1;
+        // compare as whole numbers
+        private static final int INTEGRAL = 2;
+        // compare as whole numbers, or as double values for equality
+        private static final int FLOATING = 3;
+
+        private final BinaryOperatorType operator;
+        private final String text;
+        private final boolean equality;
+        private final Long longValue;
+        private final Double doubleValue;
+        private volatile TypeKind last;
+
+        private LiteralComparison(BinaryOperatorType operator, String text) {
+            this.operator = operator;
+            this.text = text;
+            this.equality = operator == BinaryOperatorType.EQ || operator == BinaryOperatorType.NOT_EQ;
+            // only use the number if its the same text, eg not 0123 or +123, as the text must match as well
+            Long num = parseLong(text);
+            this.longValue = num != null && num.toString().equals(text) ? num : null;
+            Double dbl = null;
+            try {
+                dbl = Double.valueOf(text);
+                if (!dbl.toString().equals(text)) {
+                    dbl = null;
+                }
+            } catch (NumberFormatException e) {
+                // not a double
+            }
+            this.doubleValue = dbl;
+        }
+
+        /**
+         * Compares the given value of the left hand side with the literal.
+         *
+         * @param exchange the exchange
+         * @param value    the value of the left hand side
+         * @return <tt>true</tt> if the value matches the operator and the literal
+         */
+        public boolean matches(Exchange exchange, Object value) {
+            if (value == null) {
+                // the literal is never null
+                return operator == BinaryOperatorType.NOT_EQ;
+            }
+
+            int result;
+            switch (getKind(value.getClass())) {
+            case STRING:
+                if (equality) {
+                    result = text.equals(value) ? 0 : 1;
+                } else {
+                    Long num = parseLong((String) value);
+                    if (num == null) {
+                        result = ObjectHelper.typeCoerceCompare(exchange.getContext().getTypeConverter(), value, text);
+                    } else {
+                        result = compare(num, longValue);
+                    }
+                }
+                break;
+            case INTEGRAL:
+                result = compare(((Number) value).longValue(), longValue);
+                break;
+            case FLOATING:
+                if (longValue == null) {
+                    result = doubleValue.equals(value) ? 0 : 1;
+                } else if (((Double) value).isNaN()) {
+                    // not a number cannot be converted to a whole number
+                    result = ObjectHelper.typeCoerceCompare(exchange.getContext().getTypeConverter(), value, text);
+                } else {
+                    result = compare(((Double) value).longValue(), longValue);
+                }
+                break;
+            default:
+                // use type coercion
+                TypeConverter converter = exchange.getContext().getTypeConverter();
+                if (equality) {
+                    result = ObjectHelper.typeCoerceEquals(converter, value, text) ? 0 : 1;
+                } else {
+                    result = ObjectHelper.typeCoerceCompare(converter, value, text);
+                }
+            }
+
+            switch (operator) {
+            case EQ:
+                return result == 0;
+            case NOT_EQ:
+                return result != 0;
+            case GT:
+                return result > 0;
+            case GTE:
+                return result >= 0;
+            case LT:
+                return result < 0;
+            default:
+                return result <= 0;
+            }
+        }
+
+        private int getKind(Class<?> type) {
+            TypeKind kind = last;
+            if (kind == null || kind.type != type) {
+                kind = new TypeKind(type, resolveKind(type));
+                last = kind;
+            }
+            return kind.kind;
+        }
+
+        private int resolveKind(Class<?> type) {
+            if (type == String.class) {
+                return equality || longValue != null ? STRING : GENERIC;
+            } else if (longValue == null) {
+                // the literal is not a whole number, but a double can be compared with a double for equality
+                return equality && type == Double.class && doubleValue != null ? FLOATING : GENERIC;
+            } else if (type == Long.class) {
+                return INTEGRAL;
+            } else if (type == Integer.class) {
+                return !equality || (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) ? INTEGRAL : GENERIC;
+            } else if (type == Short.class) {
+                return !equality || (longValue >= Short.MIN_VALUE && longValue <= Short.MAX_VALUE) ? INTEGRAL : GENERIC;
+            } else if (type == Byte.class) {
+                return !equality || (longValue >= Byte.MIN_VALUE && longValue <= Byte.MAX_VALUE) ? INTEGRAL : GENERIC;
+            } else if (type == Double.class && !equality) {
+                // the double is compared as a whole number, the same as type coercion does
+                return FLOATING;
+            }
+            return GENERIC;
+        }
+    }
+
+    private static final class TypeKind {
+
+        private final Class<?> type;
+        private final int kind;
+
+        private TypeKind(Class<?> type, int kind) {
+            this.type = type;
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * The values of the right hand side of the in operator, when its a literal.
+     * <p/>
+     * The values are matched using the same type coercion as
+     * {@link ObjectHelper#typeCoerceEquals(TypeConverter, Object, Object)}, where the values
+     * converted to the type of the left hand side is kept in a set per type.
+     */
+    private static final class InValues {
+
+        private final Set<Object> values = new HashSet<Object>();
+        private final Map<Class<?>, Set<Object>> convertedValues = new ConcurrentHashMap<Class<?>, Set<Object>>();
+
+        private InValues(String text) {
+            // each element on the right hand side must be separated by comma (default for create iterator)
+            Iterator<Object> it = ObjectHelper.createIterator(text);
+            while (it.hasNext()) {
+                values.add(it.next());
+            }
+        }
+
+        private boolean contains(TypeConverter converter, Object value) {
+            if (value == null) {
+                return false;
+            }
+            if (values.contains(value)) {
+                return true;
+            }
+            if (value instanceof String) {
+                // the values are also strings so there is no need for type coercion
+                return false;
+            }
+
+            // try converting the value to a string
+            Object converted = converter.convertTo(String.class, value);
+            if (converted != null && values.contains(converted)) {
+                return true;
+            }
+
+            // try converting the values to the type of the value
+            Set<Object> set = convertedValues.get(value.getClass());
+            if (set == null) {
+                set = new HashSet<Object>();
+                for (Object element : values) {
+                    Object convertedElement = converter.convertTo(value.getClass(), element);
+                    if (convertedElement != null) {
+                        set.add(convertedElement);
+                    }
+                }
+                convertedValues.put(value.getClass(), set);
+            }
+            return set.contains(value);
+        }
+    }
+
+    /**
+     * The classes resolved by the is operator for a class name.
+     * <p/>
+     * The classes is resolved using the {@link org.apache.camel.spi.ClassResolver} from the
+     * {@link CamelContext}, so the classes is kept per {@link CamelContext}. The camel contexts and the classes
+     * is weakly referenced as the compiled expressions may outlive the camel context and its class loader.
+     */
+    private static final class ClassCache {
+
+        private final String name;
+        // copy on write, as there is usually just the one camel context
+        private volatile ResolvedClass[] resolved = new ResolvedClass[0];
+
+        private ClassCache(String name) {
+            this.name = name;
+        }
+
+        private Class<?> resolveClass(CamelContext context) {
+            ResolvedClass[] current = resolved;
+            Class<?> answer = null;
+            boolean dead = false;
+            for (ResolvedClass other : current) {
+                CamelContext resolvedContext = other.context.get();
+                Class<?> type = other.type.get();
+                if (resolvedContext == null || type == null) {
+                    dead = true;
+                } else if (resolvedContext == context) {
+                    answer = type;
+                }
+            }
+            if (answer != null) {
+                if (dead) {
+                    prune(current, null);
+                }
+                return answer;
+            }
+
+            answer = context.getClassResolver().resolveClass(name);
+            if (answer != null) {
+                prune(current, new ResolvedClass(context, answer));
+            } else if (dead) {
+                prune(current, null);
+            }
+            return answer;
+        }
+
+        private void prune(ResolvedClass[] current, ResolvedClass added) {
+            // the camel contexts and classes which is no longer referenced is dropped, and a concurrent
+            // update may be lost, which only means the class is resolved again
+            List<ResolvedClass> copy = new ArrayList<ResolvedClass>(current.length + 1);
+            for (ResolvedClass other : current) {
+                if (other.context.get() != null && other.type.get() != null) {
+                    copy.add(other);
+                }
+            }
+            if (added != null) {
+                copy.add(added);
+            }
+            resolved = copy.toArray(new ResolvedClass[copy.size()]);
+        }
+    }
+
+    private static final class ResolvedClass {
+
+        private final WeakReference<CamelContext> context;
+        private final WeakReference<Class<?>> type;
+
+        private ResolvedClass(CamelContext context, Class<?> type) {
+            this.context = new WeakReference<CamelContext>(context);
+            this.type = new WeakReference<Class<?>>(type);
+        }
+    }
+
 }
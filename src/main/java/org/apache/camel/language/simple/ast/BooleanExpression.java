@@ -0,0 +1,74 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.language.simple.SimpleToken;
+
+/**
+ * Represents a boolean value which is known when parsing, such as an operator
+ * where all the operands is constant.
+ */
+public class BooleanExpression extends BaseSimpleNode {
+
+    private final boolean value;
+    private final String text;
+
+    /**
+     * @param token the token of the node which was folded into this value
+     * @param value the value
+     * @param text  the text of the node which was folded into this value, used for debugging
+     */
+    public BooleanExpression(SimpleToken token, boolean value, String text) {
+        super(token);
+        this.value = value;
+        this.text = text;
+    }
+
+    public boolean getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    @Override
+    public Expression createExpression(String expression) {
+        return ExpressionBuilder.constantExpression(value);
+    }
+
+    @Override
+    public Predicate createPredicate(String expression) {
+        return new Predicate() {
+            @Override
+            public boolean matches(Exchange exchange) {
+                return value;
+            }
+
+            @Override
+            public String toString() {
+                return text;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,262 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.impl.ExpressionAdapter;
+import org.apache.camel.language.simple.SimpleParserException;
+
+/**
+ * The date function, such as <tt>${date:now:yyyyMMdd}</tt>, where the pattern is parsed once when
+ * the expression is created, instead of when the expression is evaluated.
+ * <p/>
+ * The parsed patterns is shared by all the expressions with the same pattern, locale and time zone.
+ * As {@link SimpleDateFormat} is not thread safe, each thread formats using its own copy of the parsed pattern,
+ * where each thread keeps a bounded number of copies. The expression uses the default locale and time zone from
+ * when the expression is created, whereas {@link ExpressionBuilder#dateExpression(String, String)} uses the
+ * default locale and time zone when the expression is evaluated. So changing the default locale or time zone
+ * only affects the expressions created afterwards.
+ * <p/>
+ * The formatted value of the <tt>now</tt> command can also be cached, which is disabled by default. The value is
+ * then only formatted again when the second changes, or the millisecond if the pattern includes the milliseconds.
+ * This is useful when the same pattern is formatted at a high rate, such as for file names.
+ *
+ * @see ExpressionBuilder#dateExpression(String, String)
+ */
+public final class CachedDateExpression extends ExpressionAdapter {
+
+    private static final int NOW = 0;
+    private static final int IN_HEADER = 1;
+    private static final int OUT_HEADER = 2;
+    private static final int FILE = 3;
+    private static final int UNKNOWN = -1;
+
+    // the maximum number of patterns to share
+    private static final int MAX_FORMATTERS = 1000;
+    private static final Map<String, DateFormatter> FORMATTERS = new ConcurrentHashMap<String, DateFormatter>();
+    // the maximum number of copies of the parsed patterns per thread
+    private static final int MAX_THREAD_FORMATS = 32;
+    private static final ThreadLocal<Map<DateFormatter, SimpleDateFormat>> THREAD_FORMATS
+        = new ThreadLocal<Map<DateFormatter, SimpleDateFormat>>() {
+        @Override
+        protected Map<DateFormatter, SimpleDateFormat> initialValue() {
+            return new ThreadFormats();
+        }
+    };
+
+    private final String command;
+    private final String pattern;
+    private final int kind;
+    private final String key;
+    private final DateFormatter formatter;
+    private final boolean cacheNow;
+
+    private CachedDateExpression(String command, String pattern, DateFormatter formatter, boolean cacheNow) {
+        this.command = command;
+        this.pattern = pattern;
+        this.formatter = formatter;
+        this.cacheNow = cacheNow;
+        if ("now".equals(command)) {
+            kind = NOW;
+        } else if (command.startsWith("header.") || command.startsWith("in.header.")) {
+            kind = IN_HEADER;
+        } else if (command.startsWith("out.header.")) {
+            kind = OUT_HEADER;
+        } else if ("file".equals(command)) {
+            kind = FILE;
+        } else {
+            kind = UNKNOWN;
+        }
+        // the header name is after the last dot
+        this.key = command.substring(command.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Creates the date function.
+     *
+     * @param command the command, such as <tt>now</tt> or <tt>header.foo</tt>
+     * @param pattern the pattern of {@link SimpleDateFormat}
+     * @param index   the index of the function in the input
+     * @return the expression
+     * @throws SimpleParserException is thrown if the pattern is invalid
+     */
+    public static Expression dateExpression(String command, String pattern, int index) {
+        Locale locale = Locale.getDefault();
+        TimeZone timeZone = TimeZone.getDefault();
+        // the locale and time zone id has no separators, so the pattern can be last
+        String key = locale + "|" + timeZone.getID() + "|" + pattern;
+        DateFormatter formatter = FORMATTERS.get(key);
+        if (formatter == null) {
+            try {
+                formatter = new DateFormatter(pattern, locale, timeZone);
+            } catch (IllegalArgumentException e) {
+                throw new SimpleParserException("Invalid date pattern: " + pattern, index);
+            }
+            if (FORMATTERS.size() < MAX_FORMATTERS) {
+                FORMATTERS.put(key, formatter);
+            }
+        }
+        return new CachedDateExpression(command, pattern, formatter, false);
+    }
+
+    /**
+     * Whether the formatted value of the <tt>now</tt> command is cached.
+     */
+    public boolean isCacheNow() {
+        return cacheNow;
+    }
+
+    /**
+     * Creates a copy of this expression where the formatted value of the <tt>now</tt> command is cached, so the value
+     * is only formatted again when the second changes, or the millisecond if the pattern includes the milliseconds.
+     *
+     * @return the expression
+     */
+    public CachedDateExpression cacheNow() {
+        return cacheNow ? this : new CachedDateExpression(command, pattern, formatter, true);
+    }
+
+    @Override
+    public Object evaluate(Exchange exchange) {
+        Date date;
+        switch (kind) {
+        case NOW:
+            long now = System.currentTimeMillis();
+            return cacheNow ? formatter.formatNow(now) : formatter.format(new Date(now));
+        case IN_HEADER:
+            date = exchange.getIn().getHeader(key, Date.class);
+            if (date == null) {
+                throw new IllegalArgumentException("Cannot find java.util.Date object at command: " + command);
+            }
+            break;
+        case OUT_HEADER:
+            date = exchange.getOut().getHeader(key, Date.class);
+            if (date == null) {
+                throw new IllegalArgumentException("Cannot find java.util.Date object at command: " + command);
+            }
+            break;
+        case FILE:
+            date = exchange.getIn().getHeader(Exchange.FILE_LAST_MODIFIED, Date.class);
+            if (date == null) {
+                throw new IllegalArgumentException("Cannot find " + Exchange.FILE_LAST_MODIFIED + " header at command: " + command);
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Command not supported for dateExpression: " + command);
+        }
+        return formatter.format(date);
+    }
+
+    @Override
+    public String toString() {
+        return "date(" + command + ":" + pattern + ")";
+    }
+
+    /**
+     * Whether the pattern includes the milliseconds, which is the <tt>S</tt> letter outside quoted text.
+     */
+    private static boolean hasMilliseconds(String pattern) {
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char ch = pattern.charAt(i);
+            if (ch == '\'') {
+                quoted = !quoted;
+            } else if (ch == 'S' && !quoted) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A parsed pattern, which can be used by many threads.
+     */
+    private static final class DateFormatter {
+
+        private final SimpleDateFormat prototype;
+        // the length of the time which is formatted the same, when the formatted value of now is cached
+        private final long resolution;
+        private volatile FormattedDate last;
+
+        private DateFormatter(String pattern, Locale locale, TimeZone timeZone) {
+            // the pattern is parsed once, and each thread uses a copy of the parsed pattern
+            this.prototype = new SimpleDateFormat(pattern, locale);
+            this.prototype.setTimeZone(timeZone);
+            this.resolution = hasMilliseconds(pattern) ? 1 : 1000;
+        }
+
+        private String format(Date date) {
+            Map<DateFormatter, SimpleDateFormat> formats = THREAD_FORMATS.get();
+            SimpleDateFormat format = formats.get(this);
+            if (format == null) {
+                format = (SimpleDateFormat) prototype.clone();
+                formats.put(this, format);
+            }
+            return format.format(date);
+        }
+
+        private String formatNow(long now) {
+            long time = now - now % resolution;
+            FormattedDate formatted = last;
+            if (formatted == null || formatted.time != time) {
+                // concurrent updates may be lost, which only means the value is formatted again
+                formatted = new FormattedDate(time, format(new Date(now)));
+                last = formatted;
+            }
+            return formatted.text;
+        }
+    }
+
+    private static final class FormattedDate {
+
+        private final long time;
+        private final String text;
+
+        private FormattedDate(long time, String text) {
+            this.time = time;
+            this.text = text;
+        }
+    }
+
+    /**
+     * The copies of the parsed patterns of a thread, where the least recently used copy is discarded.
+     */
+    private static final class ThreadFormats extends LinkedHashMap<DateFormatter, SimpleDateFormat> {
+
+        private static final long serialVersionUID = 1L;
+
+        private ThreadFormats() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<DateFormatter, SimpleDateFormat> eldest) {
+            return size() > MAX_THREAD_FORMATS;
+        }
+    }
+
+}
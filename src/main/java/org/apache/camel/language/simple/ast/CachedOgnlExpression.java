@@ -0,0 +1,328 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.impl.ExpressionAdapter;
+import org.apache.camel.language.bean.RuntimeBeanExpressionException;
+import org.apache.camel.model.language.MethodCallExpression;
+
+/**
+ * An OGNL expression on the message body or a message header, such as <tt>${body.order.customer.name}</tt>,
+ * where the methods is resolved once per class of the receiver.
+ * <p/>
+ * The OGNL is split into its methods when the expression is created. Each method keeps an inline cache of the
+ * methods resolved for the last few classes of the receiver, and a small map for any further classes, so
+ * evaluating the expression is just a few reflective calls. The classes and methods is weakly referenced,
+ * so a method is resolved again if it is no longer referenced. Only plain method and getter names with no
+ * parameters, such as <tt>customer</tt> or <tt>getCustomer</tt>, is supported, as the other OGNL syntax
+ * is created as the OGNL expressions from {@link ExpressionBuilder}.
+ * <p/>
+ * The methods is resolved the same way as by the bean component, where either a method with the given name
+ * or the getter is used. If a method cannot be resolved, such as when it is ambiguous or overloaded, then the rest
+ * of the OGNL is evaluated by the bean component from the current receiver, so the methods before it is not invoked
+ * again. If a method fails, or the receiver is <tt>null</tt> before the last method, then the same exception is
+ * thrown as the OGNL expression from {@link ExpressionBuilder} would throw.
+ */
+public final class CachedOgnlExpression extends ExpressionAdapter {
+
+    // a chain of plain method names, which is optionally null safe
+    private static final Pattern METHODS = Pattern.compile("((?:\\?)?\\.)([a-zA-Z_$][\\w$]*)");
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_$][\\w$]*");
+
+    // the number of classes in the inline cache of a method
+    private static final int POLYMORPHIC = 4;
+    // the number of further classes to cache per method, after which the bean component is used for new classes
+    private static final int MEGAMORPHIC = 64;
+
+    private final Expression fallback;
+    private final String header;
+    private final String key;
+    private final String ognl;
+    private final Invocation[] invocations;
+
+    private CachedOgnlExpression(Expression fallback, String header, String key, String ognl, Invocation[] invocations) {
+        this.fallback = fallback;
+        this.header = header;
+        this.key = key;
+        this.ognl = ognl;
+        this.invocations = invocations;
+    }
+
+    /**
+     * Creates an OGNL expression on the message body.
+     *
+     * @param ognl the OGNL, such as <tt>.order.customer</tt>
+     * @return the expression
+     * @see ExpressionBuilder#bodyOgnlExpression(String)
+     */
+    public static Expression bodyOgnlExpression(String ognl) {
+        Expression fallback = ExpressionBuilder.bodyOgnlExpression(ognl);
+        Invocation[] invocations = parseInvocations(ognl);
+        return invocations != null ? new CachedOgnlExpression(fallback, null, null, ognl, invocations) : fallback;
+    }
+
+    /**
+     * Creates an OGNL expression on a message header.
+     *
+     * @param ognl the name of the header with the OGNL, such as <tt>foo.order.customer</tt>
+     * @return the expression
+     * @see ExpressionBuilder#headersOgnlExpression(String)
+     */
+    public static Expression headerOgnlExpression(String ognl) {
+        Expression fallback = ExpressionBuilder.headersOgnlExpression(ognl);
+        // the header name is up till the first method
+        int index = ognl.indexOf('.');
+        if (index > 0 && ognl.charAt(index - 1) == '?') {
+            index--;
+        }
+        if (index <= 0 || !NAME.matcher(ognl.substring(0, index)).matches()) {
+            return fallback;
+        }
+        String methods = ognl.substring(index);
+        Invocation[] invocations = parseInvocations(methods);
+        return invocations != null ? new CachedOgnlExpression(fallback, ognl, ognl.substring(0, index), methods, invocations) : fallback;
+    }
+
+    @Override
+    public Object evaluate(Exchange exchange) {
+        Object value;
+        if (header == null) {
+            value = exchange.getIn().getBody();
+        } else {
+            // a header with the name including the OGNL is used as is
+            value = exchange.getIn().getHeader(header);
+            if (value != null) {
+                return value;
+            }
+            value = exchange.getIn().getHeader(key);
+        }
+        if (value == null) {
+            return null;
+        }
+
+        for (int i = 0; i < invocations.length; i++) {
+            Invocation invocation = invocations[i];
+            Method method = invocation.getMethod(value.getClass());
+            if (method == null) {
+                // let the bean component evaluate the rest of the OGNL
+                return evaluateRemaining(exchange, value, invocation);
+            }
+            try {
+                value = method.invoke(value);
+            } catch (InvocationTargetException e) {
+                throw createException(exchange, invocation, e.getTargetException());
+            } catch (Exception e) {
+                throw createException(exchange, invocation, e);
+            }
+            if (value == null) {
+                if (invocation.nullSafe || i == invocations.length - 1) {
+                    return null;
+                }
+                // invoking the next method on null is an error
+                throw new RuntimeBeanExpressionException(exchange, null, ognl, new NullPointerException());
+            }
+        }
+        return value;
+    }
+
+    private Object evaluateRemaining(Exchange exchange, Object value, Invocation invocation) {
+        try {
+            return new MethodCallExpression(value, invocation.remaining).evaluate(exchange);
+        } catch (RuntimeBeanExpressionException e) {
+            // report the error for the entire OGNL
+            throw new RuntimeBeanExpressionException(exchange, null, ognl, e.getCause());
+        }
+    }
+
+    private RuntimeBeanExpressionException createException(Exchange exchange, Invocation invocation, Throwable cause) {
+        // the same exception as thrown by the bean component
+        Throwable error = new RuntimeBeanExpressionException(exchange, null, invocation.name, cause);
+        return new RuntimeBeanExpressionException(exchange, null, ognl, error);
+    }
+
+    @Override
+    public String toString() {
+        return fallback.toString();
+    }
+
+    private static Invocation[] parseInvocations(String ognl) {
+        List<Invocation> answer = new ArrayList<Invocation>();
+        Matcher matcher = METHODS.matcher(ognl);
+        int end = 0;
+        while (matcher.find()) {
+            if (matcher.start() != end) {
+                return null;
+            }
+            answer.add(new Invocation(matcher.group(2), matcher.group(1).startsWith("?"), ognl.substring(matcher.start())));
+            end = matcher.end();
+        }
+        if (answer.isEmpty() || end != ognl.length()) {
+            return null;
+        }
+        return answer.toArray(new Invocation[answer.size()]);
+    }
+
+    /**
+     * Resolves the method with no parameters to invoke on the given type, or <tt>null</tt> if there is no such
+     * method, or the method is ambiguous.
+     */
+    static Method resolveMethod(Class<?> type, String name) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        List<Method> methods = findMethods(type, name);
+        if (Character.isLowerCase(name.charAt(0)) || name.charAt(0) == '_') {
+            // the getter for the name
+            String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            methods.addAll(findMethods(type, "get" + suffix));
+            for (Method method : findMethods(type, "is" + suffix)) {
+                if (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class) {
+                    methods.add(method);
+                }
+            }
+        }
+        // the method must not be ambiguous, such as both a method and a getter with the name
+        return methods.size() == 1 ? checkMethod(methods.get(0)) : null;
+    }
+
+    private static List<Method> findMethods(Class<?> type, String name) {
+        List<Method> answer = new ArrayList<Method>();
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) && !method.isBridge()) {
+                answer.add(method);
+            }
+        }
+        return answer;
+    }
+
+    private static Method checkMethod(Method method) {
+        // the methods from object is not invoked by the bean component
+        if (method.getDeclaringClass() == Object.class || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return null;
+        }
+        if (method.getParameterTypes().length > 0 || method.getReturnType() == void.class) {
+            return null;
+        }
+        return method;
+    }
+
+    /**
+     * A method in the OGNL, with the cache of the methods resolved per class.
+     */
+    private static final class Invocation {
+
+        private final String name;
+        private final boolean nullSafe;
+        // the OGNL from this method
+        private final String remaining;
+        private volatile ResolvedMethod[] resolved = new ResolvedMethod[0];
+        // weakly keyed, so the classes of a redeployed application can be unloaded
+        private final Map<Class<?>, ResolvedMethod> megamorphic = Collections.synchronizedMap(new WeakHashMap<Class<?>, ResolvedMethod>());
+
+        private Invocation(String name, boolean nullSafe, String remaining) {
+            this.name = name;
+            this.nullSafe = nullSafe;
+            this.remaining = remaining;
+        }
+
+        /**
+         * Gets the method to invoke on the given type, or <tt>null</tt> if the bean component should be used
+         */
+        private Method getMethod(Class<?> type) {
+            ResolvedMethod[] current = resolved;
+            ResolvedMethod found = null;
+            for (ResolvedMethod method : current) {
+                if (method.type.get() == type) {
+                    found = method;
+                    break;
+                }
+            }
+            if (found == null) {
+                found = megamorphic.get(type);
+            }
+            if (found != null) {
+                if (found.method == null) {
+                    return null;
+                }
+                Method answer = found.method.get();
+                if (answer != null) {
+                    return answer;
+                }
+                // the method is no longer referenced, so it is resolved again
+            } else if (megamorphic.size() >= MEGAMORPHIC) {
+                // too many classes, so the methods is not resolved for any further classes
+                return null;
+            }
+
+            Method answer = resolveMethod(type, name);
+            ResolvedMethod method = new ResolvedMethod(type, answer);
+            // the classes and methods which is no longer referenced is dropped, and a concurrent update
+            // may be lost, which only means the method is resolved again
+            List<ResolvedMethod> copy = new ArrayList<ResolvedMethod>(current.length + 1);
+            for (ResolvedMethod other : current) {
+                if (other != found && !other.isCleared()) {
+                    copy.add(other);
+                }
+            }
+            if (copy.size() < POLYMORPHIC) {
+                copy.add(method);
+                resolved = copy.toArray(new ResolvedMethod[copy.size()]);
+            } else {
+                if (copy.size() < current.length) {
+                    resolved = copy.toArray(new ResolvedMethod[copy.size()]);
+                }
+                megamorphic.put(type, method);
+            }
+            return answer;
+        }
+    }
+
+    /**
+     * A method resolved for a class, where both is weakly referenced as the method references its class.
+     */
+    private static final class ResolvedMethod {
+
+        private final WeakReference<Class<?>> type;
+        // null if the method cannot be resolved
+        private final WeakReference<Method> method;
+
+        private ResolvedMethod(Class<?> type, Method method) {
+            this.type = new WeakReference<Class<?>>(type);
+            this.method = method != null ? new WeakReference<Method>(method) : null;
+        }
+
+        private boolean isCleared() {
+            return type.get() == null || method != null && method.get() == null;
+        }
+    }
+
+}
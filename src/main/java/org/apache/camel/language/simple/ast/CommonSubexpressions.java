@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.language.simple.SharableSimpleFunctionFactory;
+import org.apache.camel.language.simple.SimpleParserException;
+
+/**
+ * The functions which is evaluated more than once in the same predicate, such as <tt>${header.amount}</tt> in
+ * <tt>${header.amount} &gt; 100 &amp;&amp; ${header.amount} &lt; 5000</tt>.
+ * <p/>
+ * Each distinct function is given a slot, and when the predicate is evaluated the value of the function is
+ * kept in the slot, so the function is only evaluated once per evaluation of the predicate. The slots is
+ * an array which is created per evaluation, and kept in a thread local while the predicate is evaluated, as the
+ * {@link Predicate} and {@link Expression} API only passes on the {@link Exchange}. The slots is never stored
+ * on the {@link Exchange} itself, so they are not visible to the route, and two threads evaluating the same
+ * {@link Exchange} does not see each others slots.
+ * <p/>
+ * Only the functions created by a {@link SharableSimpleFunctionFactory} is shared, such as the functions reading
+ * the body, headers or properties, as the other functions may not return the same value when evaluated again.
+ */
+public final class CommonSubexpressions {
+
+    // the slots of the evaluation in progress on the current thread
+    private static final ThreadLocal<Object[]> SLOTS = new ThreadLocal<Object[]>();
+
+    // the slots starts with the owner and the exchange, as the exchange may be copied during the evaluation
+    private static final int OWNER = 0;
+    private static final int EXCHANGE = 1;
+    private static final int FIRST_SLOT = 2;
+
+    // marker for a slot which is not yet evaluated, as null is a valid value
+    private static final Object NOT_EVALUATED = new Object();
+
+    private final int size;
+
+    private CommonSubexpressions(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Finds the functions which is evaluated more than once in the given nodes, and lets them share their value.
+     *
+     * @param nodes the nodes of the predicate
+     * @return the common subexpressions, or <tt>null</tt> if there was no functions to share
+     */
+    public static CommonSubexpressions eliminate(List<SimpleNode> nodes) {
+        Map<String, List<SimpleFunctionStart>> functions = new LinkedHashMap<String, List<SimpleFunctionStart>>();
+        for (SimpleNode node : nodes) {
+            collectFunctions(node, functions);
+        }
+
+        List<List<SimpleFunctionStart>> shared = new ArrayList<List<SimpleFunctionStart>>();
+        for (Map.Entry<String, List<SimpleFunctionStart>> entry : functions.entrySet()) {
+            if (entry.getValue().size() > 1 && isSharable(entry.getKey())) {
+                shared.add(entry.getValue());
+            }
+        }
+        if (shared.isEmpty()) {
+            return null;
+        }
+
+        CommonSubexpressions answer = new CommonSubexpressions(shared.size());
+        for (int slot = 0; slot < shared.size(); slot++) {
+            for (SimpleFunctionStart function : shared.get(slot)) {
+                function.share(answer, slot);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Whether the given function is created by a {@link SharableSimpleFunctionFactory}, so it returns the same value
+     * when evaluated again, and has no side effects.
+     *
+     * @param function the function, eg <tt>header.foo</tt>
+     * @return <tt>true</tt> if the function is sharable, <tt>false</tt> if unknown or invalid
+     */
+    static boolean isSharable(String function) {
+        try {
+            return SimpleFunctionExpression.getFunctionRegistry().getFunctionFactory(function, 0) instanceof SharableSimpleFunctionFactory;
+        } catch (SimpleParserException e) {
+            // the invalid function is reported when the expression is created
+            return false;
+        }
+    }
+
+    private static void collectFunctions(SimpleNode node, Map<String, List<SimpleFunctionStart>> functions) {
+        if (node instanceof SimpleFunctionStart) {
+            SimpleFunctionStart function = (SimpleFunctionStart) node;
+            if (function.getLiteral() != null) {
+                String text = function.getLiteral().getText();
+                List<SimpleFunctionStart> list = functions.get(text);
+                if (list == null) {
+                    list = new ArrayList<SimpleFunctionStart>();
+                    functions.put(text, list);
+                }
+                list.add(function);
+            }
+        } else if (node instanceof LogicalExpression) {
+            collectFunctions(((LogicalExpression) node).getLeft(), functions);
+            collectFunctions(((LogicalExpression) node).getRight(), functions);
+        } else if (node instanceof BinaryExpression) {
+            collectFunctions(((BinaryExpression) node).getLeft(), functions);
+            collectFunctions(((BinaryExpression) node).getRight(), functions);
+        } else if (node instanceof UnaryExpression) {
+            collectFunctions(((UnaryExpression) node).getLeft(), functions);
+        } else if (node instanceof GroupStart) {
+            collectFunctions(((GroupStart) node).getNode(), functions);
+        } else if (node instanceof SingleQuoteStart) {
+            collectFunctions(((SingleQuoteStart) node).getBlock(), functions);
+        } else if (node instanceof DoubleQuoteStart) {
+            collectFunctions(((DoubleQuoteStart) node).getBlock(), functions);
+        } else if (node instanceof CompositeNodes) {
+            for (SimpleNode child : ((CompositeNodes) node).getChildren()) {
+                collectFunctions(child, functions);
+            }
+        }
+    }
+
+    /**
+     * Creates the predicate which keeps the values of the shared functions while the given predicate is evaluated.
+     *
+     * @param predicate the predicate
+     * @return the predicate to use
+     */
+    public Predicate createPredicate(final Predicate predicate) {
+        return new Predicate() {
+            @Override
+            public boolean matches(Exchange exchange) {
+                if (exchange == null) {
+                    return predicate.matches(null);
+                }
+
+                // remember any evaluation in progress, as a function may evaluate another predicate
+                Object[] previous = SLOTS.get();
+                Object[] slots = new Object[FIRST_SLOT + size];
+                Arrays.fill(slots, NOT_EVALUATED);
+                slots[OWNER] = CommonSubexpressions.this;
+                slots[EXCHANGE] = exchange;
+                SLOTS.set(slots);
+                try {
+                    return predicate.matches(exchange);
+                } finally {
+                    if (previous != null) {
+                        SLOTS.set(previous);
+                    } else {
+                        SLOTS.remove();
+                    }
+                }
+            }
+
+            @Override
+            public String toString() {
+                return predicate.toString();
+            }
+        };
+    }
+
+    /**
+     * Creates the expression which evaluates the given function only once per evaluation of the predicate.
+     */
+    Expression createExpression(final Expression function, int slot) {
+        final int index = FIRST_SLOT + slot;
+        return new Expression() {
+            @Override
+            public <T> T evaluate(Exchange exchange, Class<T> type) {
+                Object[] slots = SLOTS.get();
+                if (slots == null || slots[OWNER] != CommonSubexpressions.this || slots[EXCHANGE] != exchange) {
+                    // not evaluated as part of the predicate
+                    return function.evaluate(exchange, type);
+                }
+
+                Object value = slots[index];
+                if (value == NOT_EVALUATED) {
+                    value = function.evaluate(exchange, Object.class);
+                    slots[index] = value;
+                }
+                if (value == null || type.isInstance(value)) {
+                    return type.cast(value);
+                }
+                return exchange.getContext().getTypeConverter().convertTo(type, value);
+            }
+
+            @Override
+            public String toString() {
+                return function.toString();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,322 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.camel.language.simple.BinaryOperatorType;
+import org.apache.camel.language.simple.LogicalOperatorType;
+import org.apache.camel.util.ObjectHelper;
+
+/**
+ * Folds the nodes in the AST which only depends on constant values into constants, so they are
+ * not evaluated over and over again for every {@link org.apache.camel.Exchange}.
+ * <p/>
+ * The constant values are the literals, the null value, and optionally the <tt>sys.</tt> and <tt>sysenv.</tt>
+ * functions when the system properties and environment are regarded as static.
+ * A binary operator where both sides are constant is folded into a {@link BooleanExpression}, when the result
+ * can be determined without a {@link org.apache.camel.TypeConverter}. A logical operator is simplified when one of
+ * its sides is constant, but only if the other side would not have been evaluated at all, or if the other side
+ * is the result of the operator. So any side which would be evaluated at runtime is never removed.
+ */
+public final class ConstantFolder {
+
+    // marker for a node which is not constant, as null is a constant value
+    private static final Object NOT_CONSTANT = new Object();
+
+    private final boolean foldStaticFunctions;
+
+    /**
+     * Creates a folder.
+     *
+     * @param foldStaticFunctions whether the <tt>sys.</tt> and <tt>sysenv.</tt> functions are folded into the value
+     *                            of the system property or environment variable, which should only be done if the
+     *                            system properties are not changed after the expressions has been parsed
+     */
+    public ConstantFolder(boolean foldStaticFunctions) {
+        this.foldStaticFunctions = foldStaticFunctions;
+    }
+
+    public boolean isFoldStaticFunctions() {
+        return foldStaticFunctions;
+    }
+
+    /**
+     * Folds the constant parts of the given node.
+     *
+     * @param node the node
+     * @return the folded node, which may be the given node itself
+     */
+    public SimpleNode fold(SimpleNode node) {
+        if (node instanceof LogicalExpression) {
+            return foldLogical((LogicalExpression) node);
+        } else if (node instanceof BinaryExpression) {
+            return foldBinary((BinaryExpression) node);
+        } else if (node instanceof SingleQuoteStart) {
+            foldBlock(((SingleQuoteStart) node).getBlock());
+        } else if (node instanceof DoubleQuoteStart) {
+            foldBlock(((DoubleQuoteStart) node).getBlock());
+        } else if (node instanceof SimpleFunctionStart) {
+            return foldFunction((SimpleFunctionStart) node);
+        } else if (node instanceof GroupStart) {
+            return foldGroup((GroupStart) node);
+        }
+        return node;
+    }
+
+    private SimpleNode foldGroup(GroupStart group) {
+        SimpleNode folded = fold(group.getNode());
+        if (folded instanceof BooleanExpression) {
+            // the group is no longer needed
+            return folded;
+        }
+        group.setNode(folded);
+        return group;
+    }
+
+    private void foldBlock(CompositeNodes block) {
+        List<SimpleNode> children = block.getChildren();
+        for (int i = 0; i < children.size(); i++) {
+            SimpleNode child = children.get(i);
+            SimpleNode folded = fold(child);
+            // a null value cannot be embedded in a literal
+            if (folded != child && !(folded instanceof NullExpression)) {
+                children.set(i, folded);
+            }
+        }
+    }
+
+    private SimpleNode foldFunction(SimpleFunctionStart function) {
+        if (!foldStaticFunctions || function.getLiteral() == null) {
+            return function;
+        }
+
+        String text = function.getLiteral().getText();
+        String value;
+        if (text.startsWith("sys.") && text.length() > 4) {
+            value = System.getProperty(text.substring(4));
+        } else if (text.startsWith("sysenv.") && text.length() > 7) {
+            value = System.getenv(text.substring(7));
+        } else {
+            return function;
+        }
+
+        if (value == null) {
+            return new NullExpression(function.getToken());
+        }
+        LiteralExpression answer = new LiteralExpression(function.getToken());
+        answer.addText(value);
+        return answer;
+    }
+
+    private SimpleNode foldBinary(BinaryExpression binary) {
+        binary.acceptLeftNode(fold(binary.getLeft()));
+        binary.acceptRightNode(fold(binary.getRight()));
+
+        Object left = getConstantValue(binary.getLeft());
+        Object right = getConstantValue(binary.getRight());
+        if (left == NOT_CONSTANT || right == NOT_CONSTANT) {
+            return binary;
+        }
+
+        Boolean answer = evaluate(binary.getOperator(), (String) left, (String) right);
+        if (answer == null) {
+            return binary;
+        }
+        return new BooleanExpression(binary.getToken(), answer, binary.toString());
+    }
+
+    private SimpleNode foldLogical(LogicalExpression logical) {
+        SimpleNode left = fold(logical.getLeft());
+        SimpleNode right = fold(logical.getRight());
+        logical.acceptLeftNode(left);
+        logical.acceptRightNode(right);
+
+        Boolean leftValue = getBooleanValue(left);
+        Boolean rightValue = getBooleanValue(right);
+        boolean and = logical.getOperator() == LogicalOperatorType.AND;
+
+        if (leftValue != null) {
+            if (leftValue != and) {
+                // the right hand side is not evaluated, eg false && x, or true || x
+                return new BooleanExpression(logical.getToken(), leftValue, logical.toString());
+            } else {
+                // the result is the right hand side, eg true && x, or false || x
+                return right;
+            }
+        } else if (rightValue != null && rightValue == and) {
+            // the result is the left hand side, eg x && true, or x || false
+            return left;
+        }
+        return logical;
+    }
+
+    /**
+     * Evaluates the binary operator with the given constant values, using the same rules as the
+     * {@link BinaryExpression} would at runtime.
+     *
+     * @return the result, or <tt>null</tt> if the result cannot be determined when parsing
+     */
+    private static Boolean evaluate(BinaryOperatorType operator, String left, String right) {
+        switch (operator) {
+        case EQ:
+            return ObjectHelper.equal(left, right);
+        case NOT_EQ:
+            return !ObjectHelper.equal(left, right);
+        case GT:
+        case GTE:
+        case LT:
+        case LTE:
+            return compare(operator, left, right);
+        case CONTAINS:
+            return left != null && right != null ? left.contains(right) : null;
+        case NOT_CONTAINS:
+            return left != null && right != null ? !left.contains(right) : null;
+        case REGEX:
+        case NOT_REGEX:
+            return matchesRegex(operator, left, right);
+        case IN:
+        case NOT_IN:
+            return in(operator, left, right);
+        case RANGE:
+        case NOT_RANGE:
+            return inRange(operator, left, right);
+        default:
+            // the is operator must resolve the class using the camel context
+            return null;
+        }
+    }
+
+    private static Boolean compare(BinaryOperatorType operator, String left, String right) {
+        // strings is compared as numbers when they are numbers, which we can only determine for whole numbers
+        Long leftNum = parseLong(left);
+        Long rightNum = parseLong(right);
+        if (leftNum == null || rightNum == null) {
+            return null;
+        }
+
+        int num = leftNum.compareTo(rightNum);
+        if (operator == BinaryOperatorType.GT) {
+            return num > 0;
+        } else if (operator == BinaryOperatorType.GTE) {
+            return num >= 0;
+        } else if (operator == BinaryOperatorType.LT) {
+            return num < 0;
+        } else {
+            return num <= 0;
+        }
+    }
+
+    private static Boolean matchesRegex(BinaryOperatorType operator, String left, String right) {
+        if (right == null) {
+            return null;
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(right);
+        } catch (PatternSyntaxException e) {
+            // let the binary expression report the invalid pattern
+            return null;
+        }
+        boolean answer = left != null && pattern.matcher(left).matches();
+        return operator == BinaryOperatorType.NOT_REGEX ? !answer : answer;
+    }
+
+    private static Boolean in(BinaryOperatorType operator, String left, String right) {
+        if (right == null) {
+            return null;
+        }
+        boolean answer = false;
+        if (left != null) {
+            Iterator<Object> it = ObjectHelper.createIterator(right);
+            while (!answer && it.hasNext()) {
+                answer = left.equals(it.next());
+            }
+        }
+        return operator == BinaryOperatorType.NOT_IN ? !answer : answer;
+    }
+
+    private static Boolean inRange(BinaryOperatorType operator, String left, String right) {
+        if (right == null) {
+            return null;
+        }
+        Matcher matcher = BinaryExpression.RANGE_PATTERN.matcher(right);
+        if (!matcher.matches()) {
+            // let the binary expression report the invalid range
+            return null;
+        }
+        Long num = parseLong(left);
+        Long from = parseLong(matcher.group(1));
+        Long to = parseLong(matcher.group(3));
+        if (num == null || from == null || to == null) {
+            return null;
+        }
+        boolean answer = num >= from && num <= to;
+        return operator == BinaryOperatorType.NOT_RANGE ? !answer : answer;
+    }
+
+    private static Long parseLong(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the constant value of the node
+     *
+     * @return the value which is either a String or <tt>null</tt>, or {@link #NOT_CONSTANT} if the node is not constant
+     */
+    private static Object getConstantValue(SimpleNode node) {
+        if (node instanceof NullExpression) {
+            return null;
+        }
+        // an empty quoted block has no value
+        if (node instanceof SingleQuoteStart && ((SingleQuoteStart) node).getBlock().getChildren().isEmpty()) {
+            return NOT_CONSTANT;
+        } else if (node instanceof DoubleQuoteStart && ((DoubleQuoteStart) node).getBlock().getChildren().isEmpty()) {
+            return NOT_CONSTANT;
+        }
+        String text = BinaryExpression.getLiteralText(node);
+        return text != null ? text : NOT_CONSTANT;
+    }
+
+    /**
+     * Gets the boolean value of the node when evaluated as a predicate
+     *
+     * @return the value, or <tt>null</tt> if the node is not constant
+     */
+    private static Boolean getBooleanValue(SimpleNode node) {
+        if (node instanceof BooleanExpression) {
+            return ((BooleanExpression) node).getValue();
+        }
+        Object value = getConstantValue(node);
+        if (value == NOT_CONSTANT) {
+            return null;
+        }
+        return ObjectHelper.evaluateValuePredicate(value);
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.language.simple.SimpleToken;
+import org.apache.camel.util.ObjectHelper;
+
+/**
+ * Starts a group enclosed by parenthesis, such as <tt>(${body} contains 'foo' || ${body} contains 'bar')</tt>.
+ * <p/>
+ * The group is linked together with the operators, so the group holds the single node which is the
+ * linked expression within the parenthesis.
+ */
+public class GroupStart extends BaseSimpleNode implements Block {
+
+    private SimpleNode node;
+
+    public GroupStart(SimpleToken token) {
+        super(token);
+    }
+
+    @Override
+    public String toString() {
+        // output a nice toString so it makes debugging easier as we can see the entire group
+        return "(" + node + ")";
+    }
+
+    public SimpleNode getNode() {
+        return node;
+    }
+
+    @Override
+    public Expression createExpression(String expression) {
+        ObjectHelper.notNull(node, "node", this);
+        return node.createExpression(expression);
+    }
+
+    @Override
+    public Predicate createPredicate(String expression) {
+        ObjectHelper.notNull(node, "node", this);
+        // let the node create the predicate, so the logical operators can short circuit
+        return node.createPredicate(expression);
+    }
+
+    @Override
+    public boolean acceptAndAddNode(SimpleNode node) {
+        // a group can only hold a single node
+        if (this.node != null) {
+            return false;
+        }
+        this.node = node;
+        return true;
+    }
+
+    /**
+     * Replaces the node in this group, such as when the node has been folded.
+     *
+     * @param node the node
+     */
+    public void setNode(SimpleNode node) {
+        this.node = node;
+    }
+
+}
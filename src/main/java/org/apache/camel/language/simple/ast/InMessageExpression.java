@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.impl.ExpressionAdapter;
+
+/**
+ * Reads the body, or a header, of the in message, such as <tt>${body}</tt> or <tt>${header.foo}</tt>.
+ * <p/>
+ * This is the same as {@link ExpressionBuilder#bodyExpression()} and {@link ExpressionBuilder#headerExpression(String)},
+ * but the {@link org.apache.camel.language.simple.SimpleCompiler} can tell what is read, and read it inline.
+ */
+public final class InMessageExpression extends ExpressionAdapter {
+
+    private final String headerName;
+
+    private InMessageExpression(String headerName) {
+        this.headerName = headerName;
+    }
+
+    /**
+     * Creates an expression which reads the body of the in message.
+     */
+    public static InMessageExpression bodyExpression() {
+        return new InMessageExpression(null);
+    }
+
+    /**
+     * Creates an expression which reads the given header of the in message, or the exchange property
+     * with the same name if there is no such header.
+     */
+    public static InMessageExpression headerExpression(String headerName) {
+        return new InMessageExpression(headerName);
+    }
+
+    /**
+     * Gets the name of the header, or <tt>null</tt> if the body is read.
+     */
+    public String getHeaderName() {
+        return headerName;
+    }
+
+    @Override
+    public Object evaluate(Exchange exchange) {
+        if (headerName == null) {
+            return exchange.getIn().getBody();
+        }
+        Object header = exchange.getIn().getHeader(headerName);
+        if (header == null) {
+            // fall back on a property
+            header = exchange.getProperty(headerName);
+        }
+        return header;
+    }
+
+    @Override
+    public String toString() {
+        return headerName == null ? "body" : "header(" + headerName + ")";
+    }
+
+}
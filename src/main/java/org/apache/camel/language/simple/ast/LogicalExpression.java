@@ -19,7 +19,6 @@ package org.apache.camel.language.simple.ast;
 import org.apache.camel.Exchange;
 import org.apache.camel.Expression;
 import org.apache.camel.Predicate;
-import org.apache.camel.builder.PredicateBuilder;
 import org.apache.camel.language.simple.LogicalOperatorType;
 import org.apache.camel.language.simple.SimpleParserException;
 import org.apache.camel.language.simple.SimpleToken;
@@ -33,6 +32,7 @@ public class LogicalExpression extends BaseSimpleNode {
     private LogicalOperatorType operator;
     private SimpleNode left;
     private SimpleNode right;
+    private boolean adaptive;
 
     public LogicalExpression(SimpleToken token) {
         super(token);
@@ -54,36 +54,64 @@ public class LogicalExpression extends BaseSimpleNode {
         return true;
     }
 
+    public SimpleNode getLeft() {
+        return left;
+    }
+
+    public SimpleNode getRight() {
+        return right;
+    }
+
     public LogicalOperatorType getOperator() {
         return operator;
     }
 
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Whether the operands of this operator should be reordered at runtime based on their observed cost and outcome.
+     *
+     * @param adaptive <tt>true</tt> to create an {@link AdaptiveLogicalPredicate}
+     */
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
     @Override
     public Expression createExpression(String expression) {
+        return toExpression(createPredicate(expression));
+    }
+
+    @Override
+    public Predicate createPredicate(String expression) {
         ObjectHelper.notNull(left, "left node", this);
         ObjectHelper.notNull(right, "right node", this);
 
-        final Expression leftExp = left.createExpression(expression);
-        final Expression rightExp = right.createExpression(expression);
+        if (adaptive) {
+            // the chain of this operator is evaluated in the order which is the fastest at runtime
+            return LogicalReorderer.createAdaptivePredicate(this, expression);
+        }
+
+        final Predicate leftPredicate = left.createPredicate(expression);
+        final Predicate rightPredicate = right.createPredicate(expression);
 
         if (operator == LogicalOperatorType.AND) {
-            return createAndExpression(leftExp, rightExp);
+            return createAndPredicate(leftPredicate, rightPredicate);
         } else if (operator == LogicalOperatorType.OR) {
-            return createOrExpression(leftExp, rightExp);
+            return createOrPredicate(leftPredicate, rightPredicate);
         }
 
         throw new SimpleParserException("Unknown logical operator " + operator, token.getIndex());
     }
 
-    private Expression createAndExpression(final Expression leftExp, final Expression rightExp) {
-        return new Expression() {
+    private Predicate createAndPredicate(final Predicate leftPredicate, final Predicate rightPredicate) {
+        return new Predicate() {
             @Override
-            public <T> T evaluate(Exchange exchange, Class<T> type) {
-                Predicate predicate = PredicateBuilder.toPredicate(leftExp);
-                predicate = PredicateBuilder.and(predicate, PredicateBuilder.toPredicate(rightExp));
-
-                boolean answer = predicate.matches(exchange);
-                return exchange.getContext().getTypeConverter().convertTo(type, answer);
+            public boolean matches(Exchange exchange) {
+                // the right hand side is only evaluated if the left hand side matches
+                return leftPredicate.matches(exchange) && rightPredicate.matches(exchange);
             }
 
             @Override
@@ -93,15 +121,12 @@ public class LogicalExpression extends BaseSimpleNode {
         };
     }
 
-    private Expression createOrExpression(final Expression leftExp, final Expression rightExp) {
-        return new Expression() {
+    private Predicate createOrPredicate(final Predicate leftPredicate, final Predicate rightPredicate) {
+        return new Predicate() {
             @Override
-            public <T> T evaluate(Exchange exchange, Class<T> type) {
-                Predicate predicate = PredicateBuilder.toPredicate(leftExp);
-                predicate = PredicateBuilder.or(predicate, PredicateBuilder.toPredicate(rightExp));
-
-                boolean answer = predicate.matches(exchange);
-                return exchange.getContext().getTypeConverter().convertTo(type, answer);
+            public boolean matches(Exchange exchange) {
+                // the right hand side is only evaluated if the left hand side does not match
+                return leftPredicate.matches(exchange) || rightPredicate.matches(exchange);
             }
 
             @Override
@@ -0,0 +1,268 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple.ast;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.camel.Predicate;
+import org.apache.camel.language.simple.BinaryOperatorType;
+import org.apache.camel.language.simple.LogicalOperatorType;
+
+/**
+ * Reorders the operands of the logical operators by their estimated cost, so the cheapest operands
+ * are evaluated first, such as a header check before a regular expression on the body.
+ * <p/>
+ * A chain of the same logical operator, such as <tt>a &amp;&amp; b &amp;&amp; c</tt>, gives the same result in
+ * any order when the operands have no side effects. The estimated cost of an operand is the sum of the cost of
+ * its functions and operators, where a literal compare is cheaper than a header lookup, which is cheaper than
+ * an OGNL or bean call, which is cheaper than a regular expression or using the message body.
+ * Operands with the same cost keep their order.
+ * <p/>
+ * The functions which is not created by a {@link org.apache.camel.language.simple.SharableSimpleFunctionFactory},
+ * such as <tt>bean:</tt>, <tt>date:now</tt>, <tt>threadName</tt> and the custom functions, may have side effects
+ * or return another value when evaluated again. So an operand using these functions is never moved, and the other
+ * operands is not moved across it.
+ * <p/>
+ * The operands can also be reordered at runtime in the adaptive mode, see {@link AdaptiveLogicalPredicate}.
+ * <p/>
+ * This is disabled by default, and enabled per {@link org.apache.camel.language.simple.Simple2Language},
+ * as an operand may be guarded by an operand before it, such as
+ * <tt>${header.foo} != null &amp;&amp; ${header.foo.bar} == 'abc'</tt>, where the guarded operand would fail if
+ * evaluated first.
+ */
+public final class LogicalReorderer {
+
+    public static final int LITERAL_COST = 1;
+    public static final int HEADER_COST = 2;
+    public static final int OGNL_COST = 4;
+    public static final int BODY_COST = 8;
+    public static final int REGEX_COST = 8;
+
+    private LogicalReorderer() {
+    }
+
+    /**
+     * Reorders the operands of the logical operators in the given node.
+     *
+     * @param node the node
+     * @return the reordered node, which may be the given node itself
+     */
+    public static SimpleNode reorder(SimpleNode node) {
+        if (node instanceof LogicalExpression) {
+            return reorderLogical((LogicalExpression) node);
+        } else if (node instanceof GroupStart) {
+            GroupStart group = (GroupStart) node;
+            group.setNode(reorder(group.getNode()));
+        } else if (node instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) node;
+            binary.acceptLeftNode(reorder(binary.getLeft()));
+            binary.acceptRightNode(reorder(binary.getRight()));
+        }
+        return node;
+    }
+
+    /**
+     * Estimates the cost of evaluating the given node.
+     *
+     * @param node the node
+     * @return the estimated cost
+     */
+    public static int estimateCost(SimpleNode node) {
+        int cost = 0;
+        if (node instanceof SimpleFunctionStart) {
+            cost += estimateFunctionCost((SimpleFunctionStart) node);
+        } else if (node instanceof BinaryExpression) {
+            BinaryOperatorType operator = ((BinaryExpression) node).getOperator();
+            boolean regex = operator == BinaryOperatorType.REGEX || operator == BinaryOperatorType.NOT_REGEX;
+            cost += regex ? REGEX_COST : LITERAL_COST;
+        }
+        for (SimpleNode child : getChildren(node)) {
+            cost += estimateCost(child);
+        }
+        return cost;
+    }
+
+    /**
+     * Whether the given node may have side effects when evaluated.
+     *
+     * @param node the node
+     * @return <tt>true</tt> if the node uses a function which may have side effects, which is any function
+     *         not created by a {@link org.apache.camel.language.simple.SharableSimpleFunctionFactory}
+     */
+    public static boolean hasSideEffects(SimpleNode node) {
+        if (node instanceof SimpleFunctionStart) {
+            LiteralNode literal = ((SimpleFunctionStart) node).getLiteral();
+            if (literal != null && !CommonSubexpressions.isSharable(literal.getText())) {
+                return true;
+            }
+        }
+        for (SimpleNode child : getChildren(node)) {
+            if (hasSideEffects(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the {@link AdaptiveLogicalPredicate} for the chain of the same operator as the given logical operator.
+     *
+     * @param logical    the logical operator
+     * @param expression the input string
+     * @return the predicate
+     */
+    public static Predicate createAdaptivePredicate(LogicalExpression logical, String expression) {
+        List<SimpleNode> nodes = new ArrayList<SimpleNode>();
+        flatten(logical, logical.getOperator(), nodes, new ArrayList<LogicalExpression>());
+
+        Predicate[] operands = new Predicate[nodes.size()];
+        String[] texts = new String[nodes.size()];
+        boolean[] fixed = new boolean[nodes.size()];
+        for (int i = 0; i < operands.length; i++) {
+            SimpleNode node = nodes.get(i);
+            operands[i] = node.createPredicate(expression);
+            texts[i] = node.toString();
+            fixed[i] = hasSideEffects(node);
+        }
+        return new AdaptiveLogicalPredicate(logical.getOperator(), operands, texts, fixed);
+    }
+
+    private static SimpleNode reorderLogical(LogicalExpression logical) {
+        List<SimpleNode> nodes = new ArrayList<SimpleNode>();
+        List<LogicalExpression> operators = new ArrayList<LogicalExpression>();
+        flatten(logical, logical.getOperator(), nodes, operators);
+
+        List<Operand> operands = new ArrayList<Operand>(nodes.size());
+        for (SimpleNode node : nodes) {
+            // the operands may have logical operators of their own
+            SimpleNode reordered = reorder(node);
+            operands.add(new Operand(reordered, estimateCost(reordered), hasSideEffects(reordered)));
+        }
+
+        // sort the operands between the operands with side effects, which stays in place
+        int start = 0;
+        for (int i = 0; i < operands.size(); i++) {
+            if (operands.get(i).sideEffects) {
+                Collections.sort(operands.subList(start, i), Operand.BY_COST);
+                start = i + 1;
+            }
+        }
+        Collections.sort(operands.subList(start, operands.size()), Operand.BY_COST);
+
+        // and link the operands again as left associative
+        SimpleNode answer = operands.get(0).node;
+        for (int i = 1; i < operands.size(); i++) {
+            LogicalExpression operator = operators.get(i - 1);
+            operator.acceptLeftNode(answer);
+            operator.acceptRightNode(operands.get(i).node);
+            answer = operator;
+        }
+        return answer;
+    }
+
+    private static void flatten(SimpleNode node, LogicalOperatorType operator, List<SimpleNode> operands, List<LogicalExpression> operators) {
+        if (node instanceof LogicalExpression && ((LogicalExpression) node).getOperator() == operator) {
+            LogicalExpression logical = (LogicalExpression) node;
+            flatten(logical.getLeft(), operator, operands, operators);
+            operators.add(logical);
+            flatten(logical.getRight(), operator, operands, operators);
+        } else if (node instanceof GroupStart && ((GroupStart) node).getNode() instanceof LogicalExpression
+                && ((LogicalExpression) ((GroupStart) node).getNode()).getOperator() == operator) {
+            // a group with the same operator is not needed, eg a && (b && c)
+            flatten(((GroupStart) node).getNode(), operator, operands, operators);
+        } else {
+            operands.add(node);
+        }
+    }
+
+    private static int estimateFunctionCost(SimpleFunctionStart function) {
+        if (function.getLiteral() == null) {
+            return OGNL_COST;
+        }
+        String text = function.getLiteral().getText();
+        if (text.startsWith("in.") || text.startsWith("out.")) {
+            text = text.substring(text.indexOf('.') + 1);
+        }
+
+        if (text.equals("body") || text.startsWith("body.") || text.startsWith("body[")
+                || text.startsWith("bodyAs(") || text.startsWith("mandatoryBodyAs(")) {
+            return BODY_COST;
+        }
+        String name = null;
+        if (text.startsWith("header.") || text.startsWith("property.")) {
+            name = text.substring(text.indexOf('.') + 1);
+        } else if (text.startsWith("headers.")) {
+            name = text.substring(8);
+        } else if (text.startsWith("headerAs(")) {
+            name = "";
+        }
+        if (name != null) {
+            // using OGNL on the header is more expensive
+            boolean ognl = name.indexOf('.') != -1 || name.indexOf('[') != -1 || name.indexOf('(') != -1;
+            return ognl ? OGNL_COST : HEADER_COST;
+        }
+        if (text.equals("id") || text.equals("exchangeId") || text.equals("threadName")
+                || text.startsWith("sys.") || text.startsWith("sysenv.") || text.startsWith("file:")) {
+            return HEADER_COST;
+        }
+        // bean calls and any other functions
+        return OGNL_COST;
+    }
+
+    private static List<SimpleNode> getChildren(SimpleNode node) {
+        List<SimpleNode> answer = new ArrayList<SimpleNode>(2);
+        if (node instanceof LogicalExpression) {
+            answer.add(((LogicalExpression) node).getLeft());
+            answer.add(((LogicalExpression) node).getRight());
+        } else if (node instanceof BinaryExpression) {
+            answer.add(((BinaryExpression) node).getLeft());
+            answer.add(((BinaryExpression) node).getRight());
+        } else if (node instanceof UnaryExpression) {
+            answer.add(((UnaryExpression) node).getLeft());
+        } else if (node instanceof GroupStart) {
+            answer.add(((GroupStart) node).getNode());
+        } else if (node instanceof SingleQuoteStart) {
+            answer.addAll(((SingleQuoteStart) node).getBlock().getChildren());
+        } else if (node instanceof DoubleQuoteStart) {
+            answer.addAll(((DoubleQuoteStart) node).getBlock().getChildren());
+        }
+        return answer;
+    }
+
+    private static final class Operand {
+
+        private static final Comparator<Operand> BY_COST = new Comparator<Operand>() {
+            public int compare(Operand o1, Operand o2) {
+                return o1.cost < o2.cost ? -1 : (o1.cost == o2.cost ? 0 : 1);
+            }
+        };
+
+        private final SimpleNode node;
+        private final int cost;
+        private final boolean sideEffects;
+
+        private Operand(SimpleNode node, int cost, boolean sideEffects) {
+            this.node = node;
+            this.cost = cost;
+            this.sideEffects = sideEffects;
+        }
+    }
+
+}
@@ -18,6 +18,9 @@ package org.apache.camel.language.simple.ast;
 
 import org.apache.camel.Expression;
 import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.language.simple.SharableSimpleFunctionFactory;
+import org.apache.camel.language.simple.SimpleFunctionFactory;
+import org.apache.camel.language.simple.SimpleFunctionRegistry;
 import org.apache.camel.language.simple.SimpleParserException;
 import org.apache.camel.language.simple.SimpleToken;
 import org.apache.camel.util.ObjectHelper;
@@ -27,9 +30,18 @@ import org.apache.camel.util.StringHelper;
 /**
  * Represents one of built-in functions of the
  * <a href="http://camel.apache.org/simple.html">simple language</a>
+ * <p/>
+ * The functions is resolved using a {@link SimpleFunctionRegistry} which custom functions can be added to,
+ * either directly or by the {@link org.apache.camel.language.simple.SimpleFunctionProvider}s found using a given class loader.
  */
 public class SimpleFunctionExpression extends LiteralExpression {
 
+    private static final SimpleFunctionRegistry REGISTRY = new SimpleFunctionRegistry();
+
+    static {
+        addBuiltinFunctions(REGISTRY);
+    }
+
     public SimpleFunctionExpression(SimpleToken token) {
         super(token);
     }
@@ -55,232 +67,268 @@ public class SimpleFunctionExpression extends LiteralExpression {
         return createSimpleExpression(function, strict);
     }
 
+    /**
+     * Gets the registry of the functions, which custom functions can be added to.
+     */
+    public static SimpleFunctionRegistry getFunctionRegistry() {
+        return REGISTRY;
+    }
+
     private Expression createSimpleExpression(String function, boolean strict) {
-        // return the function directly if we can create function without analyzing the prefix
-        Expression answer = createSimpleExpressionDirectly(function);
-        if (answer != null) {
-            return answer;
+        Expression answer = REGISTRY.createExpression(function, token.getIndex());
+        if (answer == null && strict) {
+            throw new SimpleParserException("Unknown function: " + function, token.getIndex());
         }
+        return answer;
+    }
+
+    private static void addBuiltinFunctions(SimpleFunctionRegistry registry) {
+        // the functions which only reads from the exchange is sharable, but not the functions such as
+        // threadName or date:now, which can return another value when evaluated again
+        // the functions which can be created without analyzing a remainder
+        SimpleFunctionFactory body = new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return InMessageExpression.bodyExpression();
+            }
+        };
+        registry.addFunction("body", body);
+        registry.addFunction("in.body", body);
+        registry.addFunction("out.body", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.outBodyExpression();
+            }
+        });
+        registry.addFunction("id", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.messageIdExpression();
+            }
+        });
+        registry.addFunction("exchangeId", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.exchangeIdExpression();
+            }
+        });
+        registry.addFunction("exception", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.exchangeExceptionExpression();
+            }
+        });
+        registry.addFunction("exception.message", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.exchangeExceptionMessageExpression();
+            }
+        });
+        registry.addFunction("exception.stacktrace", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.exchangeExceptionStackTraceExpression();
+            }
+        });
+        registry.addFunction("threadName", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.threadNameExpression();
+            }
+        });
 
         // bodyAs
-        String remainder = ifStartsWithReturnRemainder("bodyAs", function);
-        if (remainder != null) {
-            String type = ObjectHelper.between(remainder, "(", ")");
-            if (type == null) {
-                throw new SimpleParserException("Valid syntax: ${bodyAs(type)} was: " + function, token.getIndex());
+        registry.addFunctionPrefix("bodyAs", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                String type = ObjectHelper.between(remainder, "(", ")");
+                if (type == null) {
+                    throw new SimpleParserException("Valid syntax: ${bodyAs(type)} was: " + function, index);
+                }
+                type = StringHelper.removeQuotes(type);
+                return ExpressionBuilder.bodyExpression(type);
             }
-            type = StringHelper.removeQuotes(type);
-            return ExpressionBuilder.bodyExpression(type);
-        }
+        });
         // mandatoryBodyAs
-        remainder = ifStartsWithReturnRemainder("mandatoryBodyAs", function);
-        if (remainder != null) {
-            String type = ObjectHelper.between(remainder, "(", ")");
-            if (type == null) {
-                throw new SimpleParserException("Valid syntax: ${mandatoryBodyAs(type)} was: " + function, token.getIndex());
+        registry.addFunctionPrefix("mandatoryBodyAs", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                String type = ObjectHelper.between(remainder, "(", ")");
+                if (type == null) {
+                    throw new SimpleParserException("Valid syntax: ${mandatoryBodyAs(type)} was: " + function, index);
+                }
+                type = StringHelper.removeQuotes(type);
+                return ExpressionBuilder.mandatoryBodyExpression(type);
             }
-            type = StringHelper.removeQuotes(type);
-            return ExpressionBuilder.mandatoryBodyExpression(type);
-        }
+        });
 
         // body OGNL
-        remainder = ifStartsWithReturnRemainder("body", function);
-        if (remainder == null) {
-            remainder = ifStartsWithReturnRemainder("in.body", function);
-        }
-        if (remainder != null) {
-            boolean invalid = OgnlHelper.isInvalidValidOgnlExpression(remainder);
-            if (invalid) {
-                throw new SimpleParserException("Valid syntax: ${body.OGNL} was: " + function, token.getIndex());
+        SimpleFunctionFactory bodyOgnl = new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                boolean invalid = OgnlHelper.isInvalidValidOgnlExpression(remainder);
+                if (invalid) {
+                    throw new SimpleParserException("Valid syntax: ${body.OGNL} was: " + function, index);
+                }
+                return CachedOgnlExpression.bodyOgnlExpression(remainder);
             }
-            return ExpressionBuilder.bodyOgnlExpression(remainder);
-        }
+        };
+        registry.addFunctionPrefix("body", bodyOgnl);
+        registry.addFunctionPrefix("in.body", bodyOgnl);
 
         // Exception OGNL
-        remainder = ifStartsWithReturnRemainder("exception", function);
-        if (remainder != null) {
-            boolean invalid = OgnlHelper.isInvalidValidOgnlExpression(remainder);
-            if (invalid) {
-                throw new SimpleParserException("Valid syntax: ${exception.OGNL} was: " + function, token.getIndex());
+        registry.addFunctionPrefix("exception", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                boolean invalid = OgnlHelper.isInvalidValidOgnlExpression(remainder);
+                if (invalid) {
+                    throw new SimpleParserException("Valid syntax: ${exception.OGNL} was: " + function, index);
+                }
+                return ExpressionBuilder.exchangeExceptionOgnlExpression(remainder);
             }
-            return ExpressionBuilder.exchangeExceptionOgnlExpression(remainder);
-        }
+        });
 
         // headerAs
-        remainder = ifStartsWithReturnRemainder("headerAs", function);
-        if (remainder != null) {
-            String keyAndType = ObjectHelper.between(remainder, "(", ")");
-            if (keyAndType == null) {
-                throw new SimpleParserException("Valid syntax: ${headerAs(key, type)} was: " + function, token.getIndex());
-            }
-
-            String key = ObjectHelper.before(keyAndType, ",");
-            String type = ObjectHelper.after(keyAndType, ",");
-            if (ObjectHelper.isEmpty(key) || ObjectHelper.isEmpty(type)) {
-                throw new SimpleParserException("Valid syntax: ${headerAs(key, type)} was: " + function, token.getIndex());
+        registry.addFunctionPrefix("headerAs", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                String keyAndType = ObjectHelper.between(remainder, "(", ")");
+                if (keyAndType == null) {
+                    throw new SimpleParserException("Valid syntax: ${headerAs(key, type)} was: " + function, index);
+                }
+
+                String key = ObjectHelper.before(keyAndType, ",");
+                String type = ObjectHelper.after(keyAndType, ",");
+                if (ObjectHelper.isEmpty(key) || ObjectHelper.isEmpty(type)) {
+                    throw new SimpleParserException("Valid syntax: ${headerAs(key, type)} was: " + function, index);
+                }
+                key = StringHelper.removeQuotes(key);
+                type = StringHelper.removeQuotes(type);
+                return ExpressionBuilder.headerExpression(key, type);
             }
-            key = StringHelper.removeQuotes(key);
-            type = StringHelper.removeQuotes(type);
-            return ExpressionBuilder.headerExpression(key, type);
-        }
+        });
 
         // headers function
-        if ("in.headers".equals(function) || "headers".equals(function)) {
-            return ExpressionBuilder.headersExpression();
-        }
-
-        // in header function
-        remainder = ifStartsWithReturnRemainder("in.headers", function);
-        if (remainder == null) {
-            remainder = ifStartsWithReturnRemainder("in.header", function);
-        }
-        if (remainder == null) {
-            remainder = ifStartsWithReturnRemainder("headers", function);
-        }
-        if (remainder == null) {
-            remainder = ifStartsWithReturnRemainder("header", function);
-        }
-        if (remainder != null) {
-            // remove leading character (dot or ?)
-            remainder = remainder.substring(1);
-
-            // validate syntax
-            boolean invalid = OgnlHelper.isInvalidValidOgnlExpression(remainder);
-            if (invalid) {
-                throw new SimpleParserException("Valid syntax: ${header.name[key]} was: " + function, token.getIndex());
+        SimpleFunctionFactory headers = new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.headersExpression();
             }
+        };
+        registry.addFunction("in.headers", headers);
+        registry.addFunction("headers", headers);
 
-            if (OgnlHelper.isValidOgnlExpression(remainder)) {
-                // ognl based header
-                return ExpressionBuilder.headersOgnlExpression(remainder);
-            } else {
-                // regular header
-                return ExpressionBuilder.headerExpression(remainder);
+        // in header function
+        SimpleFunctionFactory header = new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                // remove leading character (dot or ?)
+                remainder = remainder.substring(1);
+
+                // validate syntax
+                boolean invalid = OgnlHelper.isInvalidValidOgnlExpression(remainder);
+                if (invalid) {
+                    throw new SimpleParserException("Valid syntax: ${header.name[key]} was: " + function, index);
+                }
+
+                if (OgnlHelper.isValidOgnlExpression(remainder)) {
+                    // ognl based header
+                    return CachedOgnlExpression.headerOgnlExpression(remainder);
+                } else {
+                    // regular header
+                    return InMessageExpression.headerExpression(remainder);
+                }
             }
-        }
+        };
+        registry.addFunctionPrefix("in.headers", header);
+        registry.addFunctionPrefix("in.header", header);
+        registry.addFunctionPrefix("headers", header);
+        registry.addFunctionPrefix("header", header);
 
         // out header function
-        remainder = ifStartsWithReturnRemainder("out.header.", function);
-        if (remainder == null) {
-            remainder = ifStartsWithReturnRemainder("out.headers.", function);
-        }
-        if (remainder != null) {
-            return ExpressionBuilder.outHeaderExpression(remainder);
-        }
-
-        // property
-        remainder = ifStartsWithReturnRemainder("property", function);
-        if (remainder != null) {
-            // remove leading character (dot or ?)
-            remainder = remainder.substring(1);
-
-            // validate syntax
-            boolean invalid = OgnlHelper.isInvalidValidOgnlExpression(remainder);
-            if (invalid) {
-                throw new SimpleParserException("Valid syntax: ${property.OGNL} was: " + function, token.getIndex());
+        SimpleFunctionFactory outHeader = new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.outHeaderExpression(remainder);
             }
+        };
+        registry.addFunctionPrefix("out.header.", outHeader);
+        registry.addFunctionPrefix("out.headers.", outHeader);
 
-            if (OgnlHelper.isValidOgnlExpression(remainder)) {
-                // ognl based property
-                return ExpressionBuilder.propertyOgnlExpression(remainder);
-            } else {
-                // regular property
-                return ExpressionBuilder.propertyExpression(remainder);
+        // property
+        registry.addFunctionPrefix("property", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                // remove leading character (dot or ?)
+                remainder = remainder.substring(1);
+
+                // validate syntax
+                boolean invalid = OgnlHelper.isInvalidValidOgnlExpression(remainder);
+                if (invalid) {
+                    throw new SimpleParserException("Valid syntax: ${property.OGNL} was: " + function, index);
+                }
+
+                if (OgnlHelper.isValidOgnlExpression(remainder)) {
+                    // ognl based property
+                    return ExpressionBuilder.propertyOgnlExpression(remainder);
+                } else {
+                    // regular property
+                    return ExpressionBuilder.propertyExpression(remainder);
+                }
             }
-        }
+        });
 
         // system property
-        remainder = ifStartsWithReturnRemainder("sys.", function);
-        if (remainder != null) {
-            return ExpressionBuilder.systemPropertyExpression(remainder);
-        }
+        registry.addFunctionPrefix("sys.", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.systemPropertyExpression(remainder);
+            }
+        });
 
         // system property
-        remainder = ifStartsWithReturnRemainder("sysenv.", function);
-        if (remainder != null) {
-            return ExpressionBuilder.systemEnvironmentExpression(remainder);
-        }
+        registry.addFunctionPrefix("sysenv.", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.systemEnvironmentExpression(remainder);
+            }
+        });
 
         // file: prefix
-        remainder = ifStartsWithReturnRemainder("file:", function);
-        if (remainder != null) {
-            Expression fileExpression = createSimpleFileExpression(remainder);
-            if (function != null) {
-                return fileExpression;
+        registry.addFunctionPrefix("file:", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return createSimpleFileExpression(remainder, index);
             }
-        }
+        });
 
         // date: prefix
-        remainder = ifStartsWithReturnRemainder("date:", function);
-        if (remainder != null) {
-            String[] parts = remainder.split(":");
-            if (parts.length < 2) {
-                throw new SimpleParserException("Valid syntax: ${date:command:pattern} was: " + function, token.getIndex());
+        registry.addFunctionPrefix("date:", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                String[] parts = remainder.split(":");
+                if (parts.length < 2) {
+                    throw new SimpleParserException("Valid syntax: ${date:command:pattern} was: " + function, index);
+                }
+                String command = ObjectHelper.before(remainder, ":");
+                String pattern = ObjectHelper.after(remainder, ":");
+                return CachedDateExpression.dateExpression(command, pattern, index);
             }
-            String command = ObjectHelper.before(remainder, ":");
-            String pattern = ObjectHelper.after(remainder, ":");
-            return ExpressionBuilder.dateExpression(command, pattern);
-        }
+        });
 
         // bean: prefix
-        remainder = ifStartsWithReturnRemainder("bean:", function);
-        if (remainder != null) {
-            return ExpressionBuilder.beanExpression(remainder);
-        }
-
-        // properties: prefix
-        remainder = ifStartsWithReturnRemainder("properties:", function);
-        if (remainder != null) {
-            String[] parts = remainder.split(":");
-            if (parts.length > 2) {
-                throw new SimpleParserException("Valid syntax: ${properties:[locations]:key} was: " + function, token.getIndex());
+        registry.addFunctionPrefix("bean:", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.beanExpression(remainder);
             }
+        });
 
-            String locations = null;
-            String key = remainder;
-            if (parts.length == 2) {
-                locations = ObjectHelper.before(remainder, ":");
-                key = ObjectHelper.after(remainder, ":");
+        // properties: prefix
+        registry.addFunctionPrefix("properties:", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                String[] parts = remainder.split(":");
+                if (parts.length > 2) {
+                    throw new SimpleParserException("Valid syntax: ${properties:[locations]:key} was: " + function, index);
+                }
+
+                String locations = null;
+                String key = remainder;
+                if (parts.length == 2) {
+                    locations = ObjectHelper.before(remainder, ":");
+                    key = ObjectHelper.after(remainder, ":");
+                }
+                return ExpressionBuilder.propertiesComponentExpression(key, locations);
             }
-            return ExpressionBuilder.propertiesComponentExpression(key, locations);
-        }
+        });
 
         // ref: prefix
-        remainder = ifStartsWithReturnRemainder("ref:", function);
-        if (remainder != null) {
-            return ExpressionBuilder.refExpression(remainder);
-        }
-
-        if (strict) {
-            throw new SimpleParserException("Unknown function: " + function, token.getIndex());
-        } else {
-            return null;
-        }
-    }
-
-    private Expression createSimpleExpressionDirectly(String expression) {
-        if (ObjectHelper.isEqualToAny(expression, "body", "in.body")) {
-            return ExpressionBuilder.bodyExpression();
-        } else if (ObjectHelper.equal(expression, "out.body")) {
-            return ExpressionBuilder.outBodyExpression();
-        } else if (ObjectHelper.equal(expression, "id")) {
-            return ExpressionBuilder.messageIdExpression();
-        } else if (ObjectHelper.equal(expression, "exchangeId")) {
-            return ExpressionBuilder.exchangeIdExpression();
-        } else if (ObjectHelper.equal(expression, "exception")) {
-            return ExpressionBuilder.exchangeExceptionExpression();
-        } else if (ObjectHelper.equal(expression, "exception.message")) {
-            return ExpressionBuilder.exchangeExceptionMessageExpression();
-        } else if (ObjectHelper.equal(expression, "exception.stacktrace")) {
-            return ExpressionBuilder.exchangeExceptionStackTraceExpression();
-        } else if (ObjectHelper.equal(expression, "threadName")) {
-            return ExpressionBuilder.threadNameExpression();
-        }
-
-        return null;
+        registry.addFunctionPrefix("ref:", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.refExpression(remainder);
+            }
+        });
     }
 
-    private Expression createSimpleFileExpression(String remainder) {
+    private static Expression createSimpleFileExpression(String remainder, int index) {
         if (ObjectHelper.equal(remainder, "name")) {
             return ExpressionBuilder.fileNameExpression();
         } else if (ObjectHelper.equal(remainder, "name.noext")) {
@@ -306,17 +354,7 @@ public class SimpleFunctionExpression extends LiteralExpression {
         } else if (ObjectHelper.equal(remainder, "modified")) {
             return ExpressionBuilder.fileLastModifiedExpression();
         }
-        throw new SimpleParserException("Unknown file language syntax: " + remainder, token.getIndex());
-    }
-
-    private String ifStartsWithReturnRemainder(String prefix, String text) {
-        if (text.startsWith(prefix)) {
-            String remainder = text.substring(prefix.length());
-            if (remainder.length() > 0) {
-                return remainder;
-            }
-        }
-        return null;
+        throw new SimpleParserException("Unknown file language syntax: " + remainder, index);
     }
 
 }
@@ -25,9 +25,24 @@ import org.apache.camel.language.simple.SimpleToken;
 public class SimpleFunctionStart extends BaseSimpleNode implements BlockStart {
 
     private LiteralNode literal;
+    // set if the function is evaluated more than once in the same predicate
+    private CommonSubexpressions common;
+    private int slot;
+    private final boolean cacheDateNow;
 
     public SimpleFunctionStart(SimpleToken token) {
+        this(token, false);
+    }
+
+    /**
+     * Creates the start of a function.
+     *
+     * @param token        the token
+     * @param cacheDateNow whether to cache the formatted value if the function is <tt>${date:now:pattern}</tt>
+     */
+    public SimpleFunctionStart(SimpleToken token, boolean cacheDateNow) {
         super(token);
+        this.cacheDateNow = cacheDateNow;
     }
 
     @Override
@@ -36,11 +51,45 @@ public class SimpleFunctionStart extends BaseSimpleNode implements BlockStart {
         return "${" + literal + "}";
     }
 
+    public LiteralNode getLiteral() {
+        return literal;
+    }
+
+    /**
+     * Shares the value of this function with the other functions with the same text,
+     * so the function is only evaluated once when the predicate is evaluated.
+     *
+     * @param common the common subexpressions of the predicate
+     * @param slot   the slot for the value of this function
+     */
+    void share(CommonSubexpressions common, int slot) {
+        this.common = common;
+        this.slot = slot;
+    }
+
     @Override
     public Expression createExpression(String expression) {
+        Expression answer = createFunctionExpression(expression);
+        if (common != null) {
+            answer = common.createExpression(answer, slot);
+        }
+        return answer;
+    }
+
+    /**
+     * Creates the expression of the function itself, which is not shared with the other functions with the same text.
+     *
+     * @param expression the input string
+     * @return the created expression
+     */
+    public Expression createFunctionExpression(String expression) {
         SimpleFunctionExpression function = new SimpleFunctionExpression(this.getToken());
         function.addText(literal.getText());
-        return function.createExpression(expression);
+        Expression answer = function.createExpression(expression);
+        if (cacheDateNow && answer instanceof CachedDateExpression) {
+            answer = ((CachedDateExpression) answer).cacheNow();
+        }
+        return answer;
     }
 
     @Override
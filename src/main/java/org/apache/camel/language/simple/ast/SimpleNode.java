@@ -17,6 +17,7 @@
 package org.apache.camel.language.simple.ast;
 
 import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
 import org.apache.camel.language.simple.SimpleParserException;
 import org.apache.camel.language.simple.SimpleToken;
 
@@ -42,4 +43,17 @@ public interface SimpleNode {
      */
     Expression createExpression(String expression) throws SimpleParserException;
 
+    /**
+     * Creates a Camel {@link Predicate} based on this model.
+     * <p/>
+     * Nodes which are predicates by nature, such as operators, evaluate directly as a <tt>boolean</tt>,
+     * other nodes evaluate their {@link Expression} as a predicate.
+     *
+     * @param expression the input string
+     * @return the created {@link Predicate}
+     * @throws org.apache.camel.language.simple.SimpleParserException
+     *          should be thrown if error parsing the model
+     */
+    Predicate createPredicate(String expression) throws SimpleParserException;
+
 }
@@ -37,6 +37,10 @@ public class SingleQuoteStart extends BaseSimpleNode implements BlockStart {
         return "'" + block + "'";
     }
 
+    public CompositeNodes getBlock() {
+        return block;
+    }
+
     @Override
     public Expression createExpression(String expression) {
         if (block != null) {
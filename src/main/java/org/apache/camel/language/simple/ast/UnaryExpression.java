@@ -55,6 +55,10 @@ public class UnaryExpression extends BaseSimpleNode {
         this.left = left;
     }
 
+    public SimpleNode getLeft() {
+        return left;
+    }
+
     public UnaryOperatorType getOperator() {
         return operator;
     }
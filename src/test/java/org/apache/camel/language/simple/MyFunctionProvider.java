@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.impl.ExpressionAdapter;
+
+/**
+ * A custom function provider which is discovered from the classpath.
+ */
+public class MyFunctionProvider implements SimpleFunctionProvider {
+
+    public void addFunctions(SimpleFunctionRegistry registry) {
+        registry.addFunction("tenantId", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return new ExpressionAdapter() {
+                    public Object evaluate(Exchange exchange) {
+                        String user = exchange.getIn().getHeader("user", String.class);
+                        return user != null ? user.substring(0, user.indexOf('@')) : null;
+                    }
+                };
+            }
+        });
+
+        registry.addFunctionPrefix("routingShard:", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                final int shards;
+                try {
+                    shards = Integer.parseInt(remainder);
+                } catch (NumberFormatException e) {
+                    throw new SimpleParserException("Valid syntax: ${routingShard:number} was: " + function, index);
+                }
+                return new ExpressionAdapter() {
+                    public Object evaluate(Exchange exchange) {
+                        return Math.abs(exchange.getExchangeId().hashCode() % shards);
+                    }
+                };
+            }
+        });
+    }
+
+}
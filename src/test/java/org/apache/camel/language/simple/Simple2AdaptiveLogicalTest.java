@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Predicate;
+import org.apache.camel.language.simple.ast.AdaptiveLogicalPredicate;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2AdaptiveLogicalTest extends LanguageTestSupport {
+
+    private Simple2Language language;
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        exchange.getIn().setBody("Hello World");
+        language = new Simple2Language();
+        language.setAdaptiveLogicalOperands(true);
+    }
+
+    @Test
+    public void testAdaptiveAnd() throws Exception {
+        Predicate predicate = createPredicate("${body} regex '^Hello.*' && ${header.foo} == 'def'");
+        assertIsInstanceOf(AdaptiveLogicalPredicate.class, predicate);
+        assertEquals(Arrays.asList("${body} regex '^Hello.*'", "${header.foo} == 'def'"), ((AdaptiveLogicalPredicate) predicate).getOrder());
+
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(predicate.matches(exchange));
+        }
+
+        // the header check never matches, so it should be evaluated first
+        assertEquals(Arrays.asList("${header.foo} == 'def'", "${body} regex '^Hello.*'"), ((AdaptiveLogicalPredicate) predicate).getOrder());
+        assertEquals("${header.foo} == 'def' && ${body} regex '^Hello.*'", predicate.toString());
+    }
+
+    @Test
+    public void testAdaptiveOr() throws Exception {
+        Predicate predicate = createPredicate("${body} contains 'Bye' || ${header.foo} == 'abc' || ${header.bar} == 123");
+
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(predicate.matches(exchange));
+        }
+
+        // the foo header check always matches, so it should be evaluated first
+        assertEquals("${header.foo} == 'abc'", ((AdaptiveLogicalPredicate) predicate).getOrder().get(0));
+    }
+
+    @Test
+    public void testAdaptiveConcurrent() throws Exception {
+        final Predicate predicate = createPredicate("${body} regex '^Hello.*' && ${header.foo} == 'abc'");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 4; i++) {
+                final Exchange copy = exchange.copy();
+                copy.getIn().setHeader("foo", i % 2 == 0 ? "abc" : "def");
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        boolean expected = "abc".equals(copy.getIn().getHeader("foo"));
+                        for (int j = 0; j < 10000; j++) {
+                            if (predicate.matches(copy) != expected) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue("Should evaluate correctly", future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // the header check does not match half of the messages, where the regex always matches
+        assertEquals("${header.foo} == 'abc'", ((AdaptiveLogicalPredicate) predicate).getOrder().get(0));
+    }
+
+    @Test
+    public void testAdaptiveFixedOperands() throws Exception {
+        Predicate[] operands = new Predicate[]{new ConstantPredicate(true), new ConstantPredicate(true), new ConstantPredicate(false)};
+        String[] texts = new String[]{"a", "b", "c"};
+
+        AdaptiveLogicalPredicate predicate = new AdaptiveLogicalPredicate(LogicalOperatorType.AND, operands, texts, new boolean[3]);
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(predicate.matches(exchange));
+        }
+        assertEquals(Arrays.asList("c", "a", "b"), predicate.getOrder());
+
+        // the operand in the middle may have side effects, so the last operand cannot be moved before it
+        predicate = new AdaptiveLogicalPredicate(LogicalOperatorType.AND, operands, texts, new boolean[]{false, true, false});
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(predicate.matches(exchange));
+        }
+        assertEquals(Arrays.asList("a", "b", "c"), predicate.getOrder());
+    }
+
+    @Test
+    public void testNotAdaptiveWhenDisabled() throws Exception {
+        Predicate predicate = context.resolveLanguage(getLanguageName()).createPredicate("${body} regex '^Hello.*' && ${header.foo} == 'def'");
+        assertFalse(predicate instanceof AdaptiveLogicalPredicate);
+
+        // the option is part of the cache key
+        predicate = createPredicate("${body} regex '^Hello.*' && ${header.foo} == 'def'");
+        assertIsInstanceOf(AdaptiveLogicalPredicate.class, predicate);
+    }
+
+    private Predicate createPredicate(String expression) {
+        return language.createPredicate(expression);
+    }
+
+    private static final class ConstantPredicate implements Predicate {
+
+        private final boolean matches;
+
+        private ConstantPredicate(boolean matches) {
+            this.matches = matches;
+        }
+
+        public boolean matches(Exchange exchange) {
+            return matches;
+        }
+    }
+
+}
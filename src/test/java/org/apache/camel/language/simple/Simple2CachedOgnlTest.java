@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.TreeMap;
+
+import org.apache.camel.Expression;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.language.simple.ast.CachedOgnlExpression;
+import org.apache.camel.test.ExchangeTestSupport;
+
+/**
+ * The OGNL expressions with cached methods must give the same result as the OGNL expressions
+ * from {@link ExpressionBuilder}.
+ */
+public class Simple2CachedOgnlTest extends ExchangeTestSupport {
+
+    private static final String[] OGNLS = {
+        ".customer", ".customer.name", ".customer.vip", ".customer.title", ".customer.friend", ".customer.friend.name",
+        ".customer.friend?.name", ".customer?.friend?.name", ".customer.boom", ".customer.over", ".customer.unknown",
+        ".customer.name.length", ".customer.name.bytes", ".customer.hashCode", ".customer.class", ".customer.getName",
+        ".customer.Name", ".customer.static", ".any.length", ".size", ".empty"
+    };
+
+    private static final Object[] BODIES = {
+        null, new Order(), "abc", new ArrayList<Object>(Arrays.asList(1, 2)), new LinkedList<Object>(),
+        new HashMap<String, Object>(), Collections.emptyList()
+    };
+
+    public void testBodyOgnl() throws Exception {
+        for (String ognl : OGNLS) {
+            Expression expression = CachedOgnlExpression.bodyOgnlExpression(ognl);
+            assertIsInstanceOf(CachedOgnlExpression.class, expression);
+            assertEquals(ExpressionBuilder.bodyOgnlExpression(ognl).toString(), expression.toString());
+
+            // evaluate twice so the cached methods is used as well
+            for (int i = 0; i < 2; i++) {
+                for (Object body : BODIES) {
+                    exchange.getIn().setBody(body);
+                    String text = (body != null ? body.getClass().getSimpleName() : null) + " " + ognl;
+                    assertEquals(text, evaluate(ExpressionBuilder.bodyOgnlExpression(ognl)), evaluate(expression));
+                }
+            }
+        }
+    }
+
+    public void testHeaderOgnl() throws Exception {
+        exchange.getIn().setHeader("foo", new Order());
+        exchange.getIn().setHeader("foo.any", "direct");
+
+        String[] ognls = {"foo.customer.name", "foo?.customer", "foo.any", "foo.customer.friend.name", "bar.any", "bar?.any"};
+        for (String ognl : ognls) {
+            Expression expression = CachedOgnlExpression.headerOgnlExpression(ognl);
+            assertIsInstanceOf(CachedOgnlExpression.class, expression);
+            assertEquals(ognl, evaluate(ExpressionBuilder.headersOgnlExpression(ognl)), evaluate(expression));
+        }
+    }
+
+    public void testNotCached() throws Exception {
+        // the other OGNL syntax is not cached
+        assertFalse(CachedOgnlExpression.bodyOgnlExpression(".customer.getHello('World')") instanceof CachedOgnlExpression);
+        assertFalse(CachedOgnlExpression.bodyOgnlExpression("[0].name") instanceof CachedOgnlExpression);
+        assertFalse(CachedOgnlExpression.headerOgnlExpression("foo[bar].name") instanceof CachedOgnlExpression);
+        assertFalse(CachedOgnlExpression.headerOgnlExpression("foo") instanceof CachedOgnlExpression);
+    }
+
+    public void testMegamorphic() throws Exception {
+        Expression expression = CachedOgnlExpression.bodyOgnlExpression(".size");
+        Object[] bodies = {
+            new ArrayList<Object>(), new LinkedList<Object>(), new HashMap<String, Object>(), new TreeMap<String, Object>(),
+            new java.util.HashSet<Object>(), new java.util.TreeSet<Object>(), new java.util.Vector<Object>(), new java.util.Stack<Object>()
+        };
+        for (int i = 0; i < 3; i++) {
+            for (Object body : bodies) {
+                exchange.getIn().setBody(body);
+                assertEquals(0, expression.evaluate(exchange, Integer.class).intValue());
+            }
+        }
+    }
+
+    public void testMethodsNotInvokedAgain() throws Exception {
+        Order order = new Order();
+        exchange.getIn().setBody(order);
+
+        // the rest of the OGNL is evaluated by the bean component from the customer
+        Expression expression = CachedOgnlExpression.bodyOgnlExpression(".counted.over");
+        Object expected = evaluate(ExpressionBuilder.bodyOgnlExpression(".counted.over"));
+        order.counter = 0;
+        assertEquals(expected, evaluate(expression));
+        assertEquals(1, order.counter);
+
+        // the error is reported without evaluating the OGNL again
+        expression = CachedOgnlExpression.bodyOgnlExpression(".counted.boom");
+        expected = evaluate(ExpressionBuilder.bodyOgnlExpression(".counted.boom"));
+        order.counter = 0;
+        assertEquals(expected, evaluate(expression));
+        assertEquals(1, order.counter);
+
+        expression = CachedOgnlExpression.bodyOgnlExpression(".counted.friend.name");
+        expected = evaluate(ExpressionBuilder.bodyOgnlExpression(".counted.friend.name"));
+        order.counter = 0;
+        assertEquals(expected, evaluate(expression));
+        assertEquals(1, order.counter);
+    }
+
+    public void testSimpleFunction() throws Exception {
+        exchange.getIn().setBody(new Order());
+        exchange.getIn().setHeader("order", new Order());
+
+        assertEquals("Claus", new SimpleExpressionParser("${body.customer.name}").parseExpression().evaluate(exchange, String.class));
+        assertEquals("Claus true", new SimpleExpressionParser("${header.order.customer.name} ${in.body?.customer.vip}")
+                .parseExpression().evaluate(exchange, String.class));
+    }
+
+    private Object evaluate(Expression expression) {
+        try {
+            return expression.evaluate(exchange, Object.class);
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    public static class Order {
+
+        private final Customer customer = new Customer();
+        private int counter;
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public Customer getCounted() {
+            counter++;
+            return customer;
+        }
+
+        public Object getAny() {
+            return "text";
+        }
+    }
+
+    public static class Customer {
+
+        public String getName() {
+            return "Claus";
+        }
+
+        public boolean isVip() {
+            return true;
+        }
+
+        public String title() {
+            return "Mr";
+        }
+
+        public String getTitle() {
+            return "Sir";
+        }
+
+        public Customer getFriend() {
+            return null;
+        }
+
+        public String getBoom() {
+            throw new IllegalStateException("Boom");
+        }
+
+        public String over() {
+            return "a";
+        }
+
+        public String over(String s) {
+            return "b" + s;
+        }
+
+        public String getHello(String s) {
+            return "Hello " + s;
+        }
+
+        public static String getStatic() {
+            return "static";
+        }
+    }
+
+}
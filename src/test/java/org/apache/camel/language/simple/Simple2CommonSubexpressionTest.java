@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.impl.ExpressionAdapter;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2CommonSubexpressionTest extends LanguageTestSupport {
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private final AtomicInteger properties = new AtomicInteger();
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+
+        Simple2Language.addFunction("amount", new SharableSimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return new ExpressionAdapter() {
+                    public Object evaluate(Exchange exchange) {
+                        counter.incrementAndGet();
+                        properties.set(exchange.getProperties().size());
+                        return exchange.getIn().getHeader("amount");
+                    }
+                };
+            }
+        });
+        // a function which has not opted in to be shared
+        Simple2Language.addFunction("ticket", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return new ExpressionAdapter() {
+                    public Object evaluate(Exchange exchange) {
+                        return counter.incrementAndGet();
+                    }
+                };
+            }
+        });
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        Simple2Language.removeFunction("amount");
+        Simple2Language.removeFunction("ticket");
+        super.tearDown();
+    }
+
+    @Test
+    public void testFunctionEvaluatedOnce() throws Exception {
+        Predicate predicate = new SimplePredicateParser("${amount} > 100 && ${amount} < 5000 && ${amount} != 999").parsePredicate();
+
+        exchange.getIn().setHeader("amount", 1234);
+        assertTrue(predicate.matches(exchange));
+        assertEquals(1, counter.get());
+
+        // a new evaluation must evaluate the function again
+        exchange.getIn().setHeader("amount", 999);
+        assertFalse(predicate.matches(exchange));
+        assertEquals(2, counter.get());
+
+        exchange.getIn().setHeader("amount", "50");
+        assertFalse(predicate.matches(exchange));
+        assertEquals(3, counter.get());
+    }
+
+    @Test
+    public void testFunctionNotSharable() throws Exception {
+        Predicate predicate = new SimplePredicateParser("${ticket} == 1 && ${ticket} == 2").parsePredicate();
+        assertTrue(predicate.matches(exchange));
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void testSlotsRemovedAfterEvaluation() throws Exception {
+        Predicate predicate = new SimplePredicateParser("${amount} > 100 && ${amount} < 5000").parsePredicate();
+
+        exchange.getIn().setHeader("amount", 1234);
+        assertTrue(predicate.matches(exchange));
+        assertTrue(exchange.getProperties().isEmpty());
+    }
+
+    @Test
+    public void testSlotsNotOnExchange() throws Exception {
+        Predicate predicate = new SimplePredicateParser("${amount} > 100 && ${amount} < 5000").parsePredicate();
+
+        exchange.getIn().setHeader("amount", 1234);
+        assertTrue(predicate.matches(exchange));
+        assertEquals(1, counter.get());
+        // the slots must not be visible on the exchange while the predicate is evaluated
+        assertEquals(0, properties.get());
+    }
+
+    @Test
+    public void testFunctionInQuotes() throws Exception {
+        Predicate predicate = new SimplePredicateParser("${amount} == 0 || ${amount} == '${amount}'").parsePredicate();
+
+        exchange.getIn().setHeader("amount", 1234);
+        assertTrue(predicate.matches(exchange));
+        assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testSharedHeader() throws Exception {
+        exchange.getIn().setHeader("amount", 1234);
+        assertPredicate("${header.amount} > 100 && ${header.amount} < 5000 && ${header.amount} != 999", true);
+        assertPredicate("${header.amount} range '100..5000' && ${header.amount} in '1234,5678'", true);
+        assertPredicate("${header.amount} == 1234 && ${header.amount} is 'java.lang.Integer'", true);
+
+        exchange.getIn().setHeader("amount", 999);
+        assertPredicate("${header.amount} > 100 && ${header.amount} < 5000 && ${header.amount} != 999", false);
+
+        exchange.getIn().setHeader("amount", null);
+        assertPredicate("${header.amount} == null || ${header.amount} > 100", true);
+    }
+
+    @Test
+    public void testSharedBodyOgnl() throws Exception {
+        exchange.getIn().setBody(new Animal("Tony", 13));
+        assertPredicate("${body.name} == 'Tony' && ${body.name} contains 'on'", true);
+        assertPredicate("${body.age} > 10 && ${body.age} < 20", true);
+    }
+
+    public static final class Animal {
+
+        private final String name;
+        private final int age;
+
+        public Animal(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.math.BigDecimal;
+
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.builder.PredicateBuilder;
+import org.apache.camel.test.ExchangeTestSupport;
+
+/**
+ * The comparisons with a literal on the right hand side is specialized for the type of the left hand side,
+ * which must give the same result as the type coercion in {@link PredicateBuilder}.
+ */
+public class Simple2CompareLiteralTest extends ExchangeTestSupport {
+
+    // not a number is not included, as the type converter remembers when it cannot convert a double to a long
+    private static final Object[] VALUES = {
+        null, "abc", "123", "0123", "+5", "-7", "12.5", "", "99999999999",
+        123, 5, -7, 0, Integer.MAX_VALUE, 123L, -7L, 99999999999L, (short) 123, (byte) 5,
+        12.5d, 123.0d, 5.0d, -7.5d, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 5.0f, 12.5f, new BigDecimal("123"), true, 'a'
+    };
+
+    private static final String[] LITERALS = {
+        "123", "0123", "5", "-7", "12.5", "5.0", "abc", "99999999999", "+5", "NaN", "true", ""
+    };
+
+    private static final String[] OPERATORS = {"==", "!=", ">", ">=", "<", "<="};
+
+    public void testCompareLiteral() throws Exception {
+        for (String operator : OPERATORS) {
+            for (String literal : LITERALS) {
+                Predicate predicate = new SimplePredicateParser("${header.foo} " + operator + " '" + literal + "'").parsePredicate();
+                for (Object value : VALUES) {
+                    Predicate expected = createExpected(operator, value, literal);
+                    exchange.getIn().setHeader("foo", value);
+
+                    String text = (value != null ? value.getClass().getSimpleName() : "") + ":" + value + " " + operator + " " + literal;
+                    assertEquals(text, matches(expected), matches(predicate));
+                }
+            }
+        }
+    }
+
+    public void testCompareNumericLiteral() throws Exception {
+        Predicate predicate = new SimplePredicateParser("${header.foo} > 100").parsePredicate();
+
+        // the inline cache is for the last type, so alternate the types
+        exchange.getIn().setHeader("foo", 150);
+        assertTrue(predicate.matches(exchange));
+        exchange.getIn().setHeader("foo", "99");
+        assertFalse(predicate.matches(exchange));
+        exchange.getIn().setHeader("foo", 100L);
+        assertFalse(predicate.matches(exchange));
+        exchange.getIn().setHeader("foo", "101");
+        assertTrue(predicate.matches(exchange));
+    }
+
+    private Predicate createExpected(String operator, Object value, String literal) {
+        Expression left = ExpressionBuilder.constantExpression(value);
+        Expression right = ExpressionBuilder.constantExpression(literal);
+        if ("==".equals(operator)) {
+            return PredicateBuilder.isEqualTo(left, right);
+        } else if ("!=".equals(operator)) {
+            return PredicateBuilder.isNotEqualTo(left, right);
+        } else if (">".equals(operator)) {
+            return PredicateBuilder.isGreaterThan(left, right);
+        } else if (">=".equals(operator)) {
+            return PredicateBuilder.isGreaterThanOrEqualTo(left, right);
+        } else if ("<".equals(operator)) {
+            return PredicateBuilder.isLessThan(left, right);
+        }
+        return PredicateBuilder.isLessThanOrEqualTo(left, right);
+    }
+
+    private String matches(Predicate predicate) {
+        try {
+            return String.valueOf(predicate.matches(exchange));
+        } catch (Exception e) {
+            return e.getClass().getName();
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.language.simple.ast.AdaptiveLogicalPredicate;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2CompiledTest extends LanguageTestSupport {
+
+    private static final String[] PREDICATES = {
+        "${header.a} == true && ${header.b} == true",
+        "${header.a} == true || ${header.b} == true",
+        "${header.a} == true && ${header.b} == true || ${header.c} == true",
+        "${header.a} == true || ${header.b} == true && ${header.c} == true",
+        "(${header.a} == true || ${header.b} == true) && ${header.c} == true",
+        "${header.a} == false && (${header.b} == true || (${header.c} == false && ${header.a} == false))",
+        "${header.a} == false && ${header.b} == false && ${header.c} == false",
+        "${header.a} == true || ${header.b} == true || ${header.c} == true",
+        "((${header.a} == true && ${header.b} != true)) || ${header.c} == true",
+        "${header.a} == true"
+    };
+
+    private Simple2Language interpreted = new Simple2Language();
+    private Simple2Language compiled = new Simple2Language();
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        compiled.setCompiled(true);
+    }
+
+    @Test
+    public void testCompiledPredicate() throws Exception {
+        for (String text : PREDICATES) {
+            Predicate expected = interpreted.createPredicate(text);
+            Predicate predicate = compiled.createPredicate(text);
+            assertEquals(text, expected.toString(), predicate.toString());
+
+            for (int i = 0; i < 8; i++) {
+                exchange.getIn().setHeader("a", (i & 1) != 0);
+                exchange.getIn().setHeader("b", (i & 2) != 0);
+                exchange.getIn().setHeader("c", (i & 4) != 0);
+                assertEquals(text + " with " + exchange.getIn().getHeaders(), expected.matches(exchange), predicate.matches(exchange));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledPredicateClass() throws Exception {
+        Predicate predicate = compiled.createPredicate("${header.foo} == 'abc' && ${header.bar} > 100");
+        assertTrue(predicate.getClass().getName().startsWith("org.apache.camel.language.simple.compiled."));
+        assertTrue(predicate.matches(exchange));
+
+        // the same predicate is cached separately when not compiled
+        assertFalse(interpreted.createPredicate("${header.foo} == 'abc' && ${header.bar} > 100").getClass().getName()
+                .startsWith("org.apache.camel.language.simple.compiled."));
+    }
+
+    @Test
+    public void testCompiledPredicateShortCircuit() throws Exception {
+        exchange.getIn().setHeader("high", true);
+
+        // the is operator fails if evaluated as there is no type header
+        assertFalse(compiled.createPredicate("${header.high} == false && (${body} is ${header.type} || ${body} == null)").matches(exchange));
+        assertTrue(compiled.createPredicate("${header.high} == true || ${body} is ${header.type}").matches(exchange));
+    }
+
+    @Test
+    public void testCompiledPredicateNotCompiled() throws Exception {
+        // a single operand is not compiled
+        Predicate predicate = compiled.createPredicate("${header.foo} == 'abc'");
+        assertFalse(predicate.getClass().getName().startsWith("org.apache.camel.language.simple.compiled."));
+        assertTrue(predicate.matches(exchange));
+
+        // the adaptive predicates is not compiled
+        compiled.setAdaptiveLogicalOperands(true);
+        predicate = compiled.createPredicate("${header.foo} == 'abc' && ${header.bar} == 123");
+        assertIsInstanceOf(AdaptiveLogicalPredicate.class, predicate);
+        assertTrue(predicate.matches(exchange));
+    }
+
+    @Test
+    public void testCompiledPredicateInline() throws Exception {
+        String[] texts = {
+            "${header.foo} == 'abc' && ${header.bar} > 100",
+            "${header.bar} >= '123' || ${body} == 'Hello'",
+            "${body} != 'Hello' && ${header.num} < 10",
+            "${property.prop} == 'yes' && ${header.prop} == 'yes'",
+            "${header.unknown} == 'x' || ${header.bar} <= '99.5'",
+            "${body.length} == 5 && ${header.foo} contains 'b'",
+            "${in.header.bar} == 123 && ${in.body} == 'Hello' && ${headers.foo} != null"
+        };
+        exchange.getIn().setBody("Hello");
+        exchange.setProperty("prop", "yes");
+
+        for (String text : texts) {
+            Predicate expected = interpreted.createPredicate(text);
+            Predicate predicate = compiled.createPredicate(text);
+            assertTrue(text, predicate.getClass().getName().startsWith("org.apache.camel.language.simple.compiled."));
+            assertEquals(text, expected.toString(), predicate.toString());
+
+            for (Object num : new Object[]{5, 10L, "7", 12.5d, null}) {
+                exchange.getIn().setHeader("num", num);
+                assertEquals(text + " with " + num, expected.matches(exchange), predicate.matches(exchange));
+            }
+        }
+    }
+
+    @Test
+    public void testCompiledPredicateSameShape() throws Exception {
+        Predicate predicate = compiled.createPredicate("${header.foo} == 'abc' && ${header.bar} > 100");
+        int count = SimpleCompiler.getClassCount();
+
+        // the same shape with other names and literals shares the generated class
+        for (int i = 0; i < 20; i++) {
+            Predicate other = compiled.createPredicate("${header.id" + i + "} != '" + i + "' && ${header.bar} > " + i);
+            assertSame(predicate.getClass(), other.getClass());
+            assertTrue(other.matches(exchange));
+        }
+        assertEquals(count, SimpleCompiler.getClassCount());
+        assertTrue(SimpleCompiler.getClassCount() <= SimpleCompiler.MAX_CLASSES);
+    }
+
+    @Test
+    public void testExpressionNotCompiled() throws Exception {
+        // the expressions is appended by the template
+        Expression expression = compiled.createExpression("Hello ${header.foo} how are you ${header.bar}?");
+        assertIsInstanceOf(SimpleTemplate.class, expression);
+        assertEquals("Hello abc how are you 123?", expression.evaluate(exchange, String.class));
+        assertEquals("Hello ${header.foo} how are you ${header.bar}?", expression.toString());
+    }
+
+}
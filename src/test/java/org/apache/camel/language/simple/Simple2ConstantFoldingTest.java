@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import org.apache.camel.Predicate;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2ConstantFoldingTest extends LanguageTestSupport {
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        System.clearProperty("region");
+        super.tearDown();
+    }
+
+    @Test
+    public void testFoldBinary() throws Exception {
+        // a folded predicate does not evaluate anything so it can match without an exchange
+        assertFolded("'abc' == 'abc'", true);
+        assertFolded("'abc' != 'abc'", false);
+        assertFolded("'abc' == null", false);
+        assertFolded("'100' > 99", true);
+        assertFolded("'100' <= 99", false);
+        assertFolded("'Hello World' contains 'World'", true);
+        assertFolded("'Camel' regex '^C.*l$'", true);
+        assertFolded("'gold' in 'silver,gold,bronze'", true);
+        assertFolded("'copper' not in 'silver,gold,bronze'", true);
+        assertFolded("'123' range '100..200'", true);
+        assertFolded("'123' not range '100..200'", false);
+    }
+
+    @Test
+    public void testFoldLogical() throws Exception {
+        assertFolded("'abc' == 'abc' && 1 < 2", true);
+        assertFolded("'abc' == 'def' && ${header.foo} == 'abc'", false);
+        assertFolded("'abc' == 'abc' || ${header.foo} == 'def'", true);
+        assertFolded("'abc' == 'def' && ${header.foo} == 'abc' || 'abc' == 'abc'", true);
+    }
+
+    @Test
+    public void testFoldLogicalToOtherSide() throws Exception {
+        assertPredicate("'abc' == 'abc' && ${header.foo} == 'abc'", true);
+        assertPredicate("'abc' == 'abc' && ${header.foo} == 'def'", false);
+        assertPredicate("${header.foo} == 'def' || 1 > 2", false);
+        assertPredicate("${header.foo} == 'abc' || 1 > 2", true);
+        assertPredicate("${header.foo} == 'abc' && 1 < 2", true);
+    }
+
+    @Test
+    public void testNotFolded() throws Exception {
+        // the left hand side must still be evaluated
+        assertPredicate("${header.foo} == 'abc' && 1 > 2", false);
+        assertPredicate("${header.foo} == 'abc' && 1 > 2 || 'abc' == 'abc'", true);
+        // the string values cannot be compared without a type converter
+        assertPredicate("'abc' < 'abd'", true);
+        // the is operator must resolve the class using the camel context
+        assertPredicate("'abc' is 'java.lang.String'", true);
+    }
+
+    @Test
+    public void testInvalidNotFolded() throws Exception {
+        try {
+            assertPredicate("'abc' regex '[abc'", false);
+            fail("Should have thrown an exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(12, e.getIndex());
+        }
+        try {
+            assertPredicate("'123' range '100.200'", false);
+            fail("Should have thrown an exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(12, e.getIndex());
+        }
+    }
+
+    @Test
+    public void testFoldStaticFunctions() throws Exception {
+        System.setProperty("region", "eu");
+
+        // not folded by default
+        Predicate predicate = new SimplePredicateParser("${sys.region} == 'eu'").parsePredicate();
+        assertTrue(predicate.matches(exchange));
+        System.setProperty("region", "us");
+        assertFalse(predicate.matches(exchange));
+
+        assertFolded("${sys.region} == 'us'", true, true);
+        assertFolded("${sys.region} in 'eu,us'", true, true);
+        assertFolded("${sys.unknown} == null", true, true);
+        assertFolded("'us' == '${sys.region}'", true, true);
+        assertFolded("${sys.region} == 'eu' && ${header.foo} == 'abc'", false, true);
+
+        Simple2Language language = new Simple2Language();
+        language.setFoldStaticFunctions(true);
+        assertFalse(language.createPredicate("${header.foo} == '${sys.region}'").matches(exchange));
+    }
+
+    @Test
+    public void testFoldStaticFunctionsPerLanguage() throws Exception {
+        System.setProperty("region", "eu");
+
+        Simple2Language folding = new Simple2Language();
+        folding.setFoldStaticFunctions(true);
+        Predicate folded = folding.createPredicate("${sys.region} == 'eu'");
+        Predicate notFolded = new Simple2Language().createPredicate("${sys.region} == 'eu'");
+        // the option is part of the cache key
+        assertNotSame(folded, notFolded);
+        assertSame(folded, folding.createPredicate("${sys.region} == 'eu'"));
+
+        System.setProperty("region", "us");
+        assertTrue(folded.matches(exchange));
+        assertFalse(notFolded.matches(exchange));
+    }
+
+    private static void assertFolded(String expression, boolean expected) {
+        assertFolded(expression, expected, false);
+    }
+
+    private static void assertFolded(String expression, boolean expected, boolean foldStaticFunctions) {
+        SimplePredicateParser parser = new SimplePredicateParser(expression);
+        parser.setFoldStaticFunctions(foldStaticFunctions);
+        Predicate predicate = parser.parsePredicate();
+        assertEquals(expression, expected, predicate.matches(null));
+    }
+
+}
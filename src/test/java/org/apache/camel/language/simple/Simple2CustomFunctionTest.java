@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.ExpressionIllegalSyntaxException;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.impl.ExpressionAdapter;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2CustomFunctionTest extends LanguageTestSupport {
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+
+        Simple2Language.addFunction("tenant", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                return ExpressionBuilder.constantExpression("acme");
+            }
+        });
+        Simple2Language.addFunctionPrefix("shard:", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                final int shards = Integer.parseInt(remainder);
+                return new ExpressionAdapter() {
+                    public Object evaluate(Exchange exchange) {
+                        return exchange.getIn().getHeader("id", Integer.class) % shards;
+                    }
+                };
+            }
+        });
+        // only handles the special header, and let the regular header function handle the others
+        Simple2Language.addFunctionPrefix("header.special", new SimpleFunctionFactory() {
+            public Expression createExpression(String function, String remainder, int index) {
+                if ("Header".equals(remainder)) {
+                    return ExpressionBuilder.constantExpression("special");
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        Simple2Language.removeFunction("tenant");
+        Simple2Language.removeFunctionPrefix("shard:");
+        Simple2Language.removeFunctionPrefix("header.special");
+
+        super.tearDown();
+    }
+
+    @Test
+    public void testCustomFunction() throws Exception {
+        assertExpression(exchange, "${tenant}", "acme");
+        assertExpression(exchange, "Hello ${tenant} how are you", "Hello acme how are you");
+        assertPredicate(exchange, "${tenant} == 'acme'", true);
+    }
+
+    @Test
+    public void testCustomFunctionPrefix() throws Exception {
+        exchange.getIn().setHeader("id", 7);
+        assertExpression(exchange, "${shard:4}", 3);
+        assertPredicate(exchange, "${shard:2} == 1", true);
+    }
+
+    @Test
+    public void testCustomFunctionFallback() throws Exception {
+        exchange.getIn().setHeader("specialOffer", "Camel");
+        assertExpression(exchange, "${header.specialHeader}", "special");
+        assertExpression(exchange, "${header.specialOffer}", "Camel");
+        assertExpression(exchange, "${header.foo}", "abc");
+    }
+
+    @Test
+    public void testCustomFunctionRemoved() throws Exception {
+        Simple2Language.removeFunction("tenant");
+        try {
+            assertExpression(exchange, "${tenant}", "acme");
+            fail("Should have thrown an exception");
+        } catch (ExpressionIllegalSyntaxException e) {
+            assertTrue(e.getMessage().startsWith("Unknown function: tenant"));
+        }
+    }
+
+    @Test
+    public void testBuiltinFunctions() throws Exception {
+        assertExpression(exchange, "${body}", "<hello id='m123'>world!</hello>");
+        assertExpression(exchange, "${in.body}", "<hello id='m123'>world!</hello>");
+        assertExpression(exchange, "${header.foo}", "abc");
+        assertExpression(exchange, "${headers.foo}", "abc");
+        assertExpression(exchange, "${in.header.foo}", "abc");
+        assertExpression(exchange, "${in.headers.foo}", "abc");
+        assertExpression(exchange, "${headerAs(foo, String)}", "abc");
+        assertExpression(exchange, "${bodyAs(String)}", "<hello id='m123'>world!</hello>");
+        assertExpression(exchange, "${exchangeId}", exchange.getExchangeId());
+    }
+
+}
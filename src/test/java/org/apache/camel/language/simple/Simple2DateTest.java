@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Expression;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.camel.language.simple.ast.CachedDateExpression;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2DateTest extends LanguageTestSupport {
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Test
+    public void testDateSameAsBefore() throws Exception {
+        Calendar cal = GregorianCalendar.getInstance();
+        cal.set(1974, Calendar.APRIL, 20, 8, 55, 47);
+        cal.set(Calendar.MILLISECOND, 123);
+        exchange.getIn().setHeader("birthday", cal.getTime());
+        exchange.getIn().setHeader(Exchange.FILE_LAST_MODIFIED, cal.getTime());
+        exchange.getOut().setHeader("birthday", cal.getTime());
+
+        String[] commands = {"header.birthday", "in.header.birthday", "out.header.birthday", "file", "header.unknown", "out.header.unknown", "unknown"};
+        String[] patterns = {"yyyyMMdd", "yyyy-MM-dd'T'HH:mm:ss:SSS", "EEE, d MMM yyyy HH:mm:ss Z", "'Sunday' S"};
+        for (String command : commands) {
+            for (String pattern : patterns) {
+                Expression expression = new SimpleExpressionParser("${date:" + command + ":" + pattern + "}").parseExpression();
+                Expression expected = ExpressionBuilder.dateExpression(command, pattern);
+                assertEquals(expected.toString(), expression.toString());
+                assertEquals(command + ":" + pattern, evaluate(expected), evaluate(expression));
+            }
+        }
+    }
+
+    @Test
+    public void testDateTimeZone() throws Exception {
+        exchange.getIn().setHeader("birthday", new Date(0));
+        TimeZone timeZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT+02:00"));
+            Expression plus = new SimpleExpressionParser("${date:header.birthday:HH}").parseExpression();
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT-05:00"));
+            Expression minus = new SimpleExpressionParser("${date:header.birthday:HH}").parseExpression();
+
+            // the expression uses the time zone from when it was created
+            assertEquals("02", plus.evaluate(exchange, String.class));
+            assertEquals("19", minus.evaluate(exchange, String.class));
+        } finally {
+            TimeZone.setDefault(timeZone);
+        }
+    }
+
+    @Test
+    public void testDateInvalidPattern() throws Exception {
+        try {
+            new SimpleExpressionParser("Today is ${date:now:yyyyMMddbb}").parseExpression();
+            fail("Should have thrown an exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(9, e.getIndex());
+            assertTrue(e.getMessage().startsWith("Invalid date pattern: yyyyMMddbb"));
+        }
+    }
+
+    @Test
+    public void testDateNow() throws Exception {
+        Expression expression = new SimpleExpressionParser("${date:now:yyyy}").parseExpression();
+        String year = new SimpleDateFormat("yyyy").format(new Date());
+        assertEquals(year, expression.evaluate(exchange, String.class));
+
+        Simple2Language language = new Simple2Language();
+        language.setCacheDateNow(true);
+        expression = language.createExpression("${date:now:yyyy}");
+        long start = System.currentTimeMillis() / 1000;
+        String first = expression.evaluate(exchange, String.class);
+        String second = expression.evaluate(exchange, String.class);
+        assertEquals(year, first);
+        assertEquals(year, second);
+        if (System.currentTimeMillis() / 1000 == start) {
+            // the formatted value is cached within the same second
+            assertSame(first, second);
+        }
+
+        // the milliseconds is formatted every millisecond
+        expression = language.createExpression("${date:now:yyyy-MM-dd HH:mm:ss.SSS}");
+        long before = System.currentTimeMillis();
+        String text = expression.evaluate(exchange, String.class);
+        long after = System.currentTimeMillis();
+        long time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").parse(text).getTime();
+        assertTrue(text, time >= before && time <= after);
+    }
+
+    @Test
+    public void testDateNowCachedPerLanguage() throws Exception {
+        SimpleExpressionParser parser = new SimpleExpressionParser("${date:now:yyyy}");
+        parser.setCacheDateNow(true);
+        assertTrue(((CachedDateExpression) parser.parseExpression()).isCacheNow());
+
+        Simple2Language cached = new Simple2Language();
+        cached.setCacheDateNow(true);
+        Simple2Language language = new Simple2Language();
+
+        // the option is part of the cache key, so the languages does not share the expression
+        Expression expression = language.createExpression("${date:now:yyyyMMdd}");
+        assertFalse(((CachedDateExpression) expression).isCacheNow());
+        assertTrue(((CachedDateExpression) cached.createExpression("${date:now:yyyyMMdd}")).isCacheNow());
+        assertSame(expression, language.createExpression("${date:now:yyyyMMdd}"));
+    }
+
+    @Test
+    public void testDateConcurrent() throws Exception {
+        final Expression expression = new SimpleExpressionParser("${date:header.birthday:yyyy-MM-dd HH:mm:ss.SSS}").parseExpression();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < 8; i++) {
+                final int offset = i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+                        Exchange exchange = new DefaultExchange(context);
+                        for (int j = 0; j < 1000; j++) {
+                            Date date = new Date(offset * 86400000L * 365 + j * 3600123L);
+                            exchange.getIn().setHeader("birthday", date);
+                            assertEquals(format.format(date), expression.evaluate(exchange, String.class));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Object evaluate(Expression expression) {
+        try {
+            return expression.evaluate(exchange, String.class);
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import org.apache.camel.Expression;
+import org.apache.camel.Predicate;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2ExpressionCacheTest extends LanguageTestSupport {
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        Simple2Language.getExpressionCache().clear();
+        Simple2Language.getExpressionCache().resetStatistics();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        Simple2Language.setMaxCacheSize(SimpleExpressionCache.DEFAULT_MAX_CACHE_SIZE);
+        super.tearDown();
+    }
+
+    @Test
+    public void testCachedExpression() throws Exception {
+        Simple2Language language = new Simple2Language();
+        Expression first = language.createExpression("Hello ${body}");
+        Expression second = language.createExpression("Hello ${body}");
+        assertSame(first, second);
+
+        SimpleExpressionCache cache = Simple2Language.getExpressionCache();
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        exchange.getIn().setBody("World");
+        assertEquals("Hello World", second.evaluate(exchange, String.class));
+    }
+
+    @Test
+    public void testCachedPredicate() throws Exception {
+        Simple2Language language = new Simple2Language();
+        Predicate first = language.createPredicate("${body} == 'Camel'");
+        Predicate second = new Simple2Language().createPredicate("${body} == 'Camel'");
+        assertSame(first, second);
+
+        exchange.getIn().setBody("Camel");
+        assertTrue(second.matches(exchange));
+    }
+
+    @Test
+    public void testCachedByResultType() throws Exception {
+        Simple2Language language = new Simple2Language();
+        Expression plain = language.createExpression("${header.foo}");
+
+        language.setResultType(Integer.class);
+        Expression typed = language.createExpression("${header.foo}");
+        assertNotSame(plain, typed);
+        assertSame(typed, language.createExpression("${header.foo}"));
+
+        exchange.getIn().setHeader("foo", "123");
+        assertEquals(123, typed.evaluate(exchange, Object.class));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        Simple2Language.setMaxCacheSize(2);
+        SimpleExpressionCache cache = Simple2Language.getExpressionCache();
+
+        Simple2Language language = new Simple2Language();
+        language.createExpression("${header.a}");
+        language.createExpression("${header.b}");
+        language.createExpression("${header.c}");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvicted());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        Simple2Language.setMaxCacheSize(2);
+        SimpleExpressionCache cache = Simple2Language.getExpressionCache();
+
+        Simple2Language language = new Simple2Language();
+        Expression a = language.createExpression("${header.a}");
+        language.createExpression("${header.b}");
+        // read a so b is the least recently used
+        assertSame(a, language.createExpression("${header.a}"));
+        language.createExpression("${header.c}");
+
+        assertEquals(2, cache.size());
+        assertSame(a, language.createExpression("${header.a}"));
+    }
+
+    @Test
+    public void testShrinkKeepsValues() throws Exception {
+        SimpleExpressionCache cache = Simple2Language.getExpressionCache();
+
+        Simple2Language language = new Simple2Language();
+        language.createExpression("${header.a}");
+        language.createExpression("${header.b}");
+        Expression c = language.createExpression("${header.c}");
+
+        Simple2Language.setMaxCacheSize(1);
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getEvicted());
+        assertEquals(3, cache.getMisses());
+        assertSame(c, language.createExpression("${header.c}"));
+    }
+
+    @Test
+    public void testEvictBatch() throws Exception {
+        SimpleExpressionCache cache = new SimpleExpressionCache(100);
+        for (int i = 0; i < 100; i++) {
+            cache.put(SimpleExpressionCache.Kind.EXPRESSION, "${header.a" + i + "}", null, "a" + i);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(0, cache.getEvicted());
+
+        // the put which overflows the cache evicts a tenth of the cache as well
+        cache.put(SimpleExpressionCache.Kind.EXPRESSION, "${header.b}", null, "b");
+        assertEquals(90, cache.size());
+        assertEquals(11, cache.getEvicted());
+        assertNull(cache.get(SimpleExpressionCache.Kind.EXPRESSION, "${header.a10}", null));
+        assertEquals("a11", cache.get(SimpleExpressionCache.Kind.EXPRESSION, "${header.a11}", null));
+        assertEquals("b", cache.get(SimpleExpressionCache.Kind.EXPRESSION, "${header.b}", null));
+
+        // the next puts does not evict until the cache is full again
+        for (int i = 0; i < 10; i++) {
+            cache.put(SimpleExpressionCache.Kind.EXPRESSION, "${header.c" + i + "}", null, "c" + i);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(11, cache.getEvicted());
+    }
+
+    @Test
+    public void testNotCachedAfterClear() throws Exception {
+        SimpleExpressionCache cache = new SimpleExpressionCache();
+        long generation = cache.getGeneration();
+
+        // the cache is cleared while the value is compiled
+        cache.clear();
+        cache.put(SimpleExpressionCache.Kind.EXPRESSION, "${header.a}", null, 0, "a", generation);
+        assertEquals(0, cache.size());
+
+        cache.put(SimpleExpressionCache.Kind.EXPRESSION, "${header.a}", null, 0, "a", cache.getGeneration());
+        assertEquals(1, cache.size());
+    }
+
+}
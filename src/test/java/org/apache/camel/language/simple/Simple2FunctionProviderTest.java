@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import org.apache.camel.ExpressionIllegalSyntaxException;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2FunctionProviderTest extends LanguageTestSupport {
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        context.setApplicationContextClassLoader(new FunctionProvidersClassLoader());
+        assertEquals(1, Simple2Language.addFunctionProviders(context));
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        Simple2Language.removeFunction("tenantId");
+        Simple2Language.removeFunctionPrefix("routingShard:");
+        super.tearDown();
+    }
+
+    @Test
+    public void testFunctionProvider() throws Exception {
+        exchange.getIn().setHeader("user", "acme@camel.apache.org");
+        assertExpression(exchange, "${tenantId}", "acme");
+        assertExpression(exchange, "Tenant ${tenantId}", "Tenant acme");
+        assertPredicate(exchange, "${tenantId} == 'acme'", true);
+    }
+
+    @Test
+    public void testFunctionProviderPrefix() throws Exception {
+        int shard = Math.abs(exchange.getExchangeId().hashCode() % 8);
+        assertExpression(exchange, "${routingShard:8}", shard);
+        assertPredicate(exchange, "${routingShard:8} range '0..7'", true);
+    }
+
+    @Test
+    public void testFunctionProviderInvalid() throws Exception {
+        try {
+            assertExpression(exchange, "${routingShard:many}", null);
+            fail("Should have thrown an exception");
+        } catch (ExpressionIllegalSyntaxException e) {
+            assertTrue(e.getMessage().startsWith("Valid syntax: ${routingShard:number} was: routingShard:many"));
+        }
+    }
+
+    @Test
+    public void testAddFunctionProviders() throws Exception {
+        SimpleFunctionRegistry registry = new SimpleFunctionRegistry();
+        assertNull(registry.createExpression("tenantId", 0));
+
+        assertEquals(0, registry.addFunctionProviders(getClass().getClassLoader()));
+        assertNull(registry.createExpression("tenantId", 0));
+
+        assertEquals(1, registry.addFunctionProviders(new FunctionProvidersClassLoader()));
+        assertNotNull(registry.createExpression("tenantId", 0));
+        assertNotNull(registry.createExpression("routingShard:4", 0));
+        assertNull(registry.createExpression("routingShard:", 0));
+
+        // can be discovered again
+        assertEquals(1, registry.addFunctionProviders(new FunctionProvidersClassLoader()));
+    }
+
+    /**
+     * A class loader which lists the {@link MyFunctionProvider} in the descriptor, so the provider is only
+     * discovered by this test.
+     */
+    private static final class FunctionProvidersClassLoader extends ClassLoader {
+
+        private FunctionProvidersClassLoader() {
+            super(Simple2FunctionProviderTest.class.getClassLoader());
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            if (SimpleFunctionRegistry.FUNCTION_PROVIDERS.equals(name)) {
+                URL url = Simple2FunctionProviderTest.class.getResource("simple2-functions");
+                return Collections.enumeration(Collections.singletonList(url));
+            }
+            return super.getResources(name);
+        }
+    }
+
+}
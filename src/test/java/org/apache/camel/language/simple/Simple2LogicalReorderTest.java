@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import org.apache.camel.Predicate;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2LogicalReorderTest extends LanguageTestSupport {
+
+    private Simple2Language language;
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        exchange.getIn().setBody("Hello World");
+        language = new Simple2Language();
+        language.setReorderLogicalOperands(true);
+    }
+
+    @Test
+    public void testReorderAnd() throws Exception {
+        Predicate predicate = createPredicate("${body} regex '^Hello.*' && ${header.foo.length} > 2 && ${header.foo} == 'abc'");
+        assertEquals("${header.foo} == 'abc' && ${header.foo.length} > 2 && ${body} regex '^Hello.*'", predicate.toString());
+        assertTrue(predicate.matches(exchange));
+
+        exchange.getIn().setHeader("foo", "def");
+        assertFalse(predicate.matches(exchange));
+    }
+
+    @Test
+    public void testReorderOr() throws Exception {
+        Predicate predicate = createPredicate("${body} contains 'World' || 'abc' == ${header.bar}");
+        assertEquals("'abc' == ${header.bar} || ${body} contains 'World'", predicate.toString());
+        assertTrue(predicate.matches(exchange));
+    }
+
+    @Test
+    public void testReorderShortCircuit() throws Exception {
+        // the is operator fails if evaluated as there is no type header, but the cheaper header check is evaluated first
+        assertFalse(createPredicate("${body} is ${header.type} && ${header.foo} == 'def'").matches(exchange));
+        assertTrue(createPredicate("${body} is ${header.type} || ${header.foo} == 'abc'").matches(exchange));
+    }
+
+    @Test
+    public void testReorderNested() throws Exception {
+        // the group with the same operator is flattened, and the group with the other operator is reordered as a whole
+        Predicate predicate = createPredicate("(${body} regex '^Bye.*' || ${header.foo} == 'abc') && (${body} contains 'World' && ${header.foo} != null)");
+        assertEquals("${header.foo} != null && ${body} contains 'World' && (${header.foo} == 'abc' || ${body} regex '^Bye.*')", predicate.toString());
+        assertTrue(predicate.matches(exchange));
+    }
+
+    @Test
+    public void testNoReorderAcrossSideEffects() throws Exception {
+        Predicate predicate = createPredicate("${body} contains 'World' && ${bean:myBean} == 'abc' && ${body} contains 'Hello' && ${header.foo} == 'abc'");
+        assertEquals("${body} contains 'World' && ${bean:myBean} == 'abc' && ${header.foo} == 'abc' && ${body} contains 'Hello'", predicate.toString());
+    }
+
+    @Test
+    public void testNoReorderWhenDisabled() throws Exception {
+        Predicate predicate = context.resolveLanguage(getLanguageName()).createPredicate("${body} regex '^Hello.*' && ${header.foo} == 'abc'");
+        assertEquals("${body} regex '^Hello.*' && ${header.foo} == 'abc'", predicate.toString());
+
+        // the option is part of the cache key
+        Predicate reordered = createPredicate("${body} regex '^Hello.*' && ${header.foo} == 'abc'");
+        assertEquals("${header.foo} == 'abc' && ${body} regex '^Hello.*'", reordered.toString());
+    }
+
+    private Predicate createPredicate(String expression) {
+        return language.createPredicate(expression);
+    }
+
+}
@@ -31,6 +31,18 @@ public class Simple2ParserExpressionTest extends ExchangeTestSupport {
         assertEquals("Hello", exp.evaluate(exchange, String.class));
     }
 
+    public void testSimpleParserLiteralRun() throws Exception {
+        exchange.getIn().setBody("World");
+        SimpleExpressionParser parser = new SimpleExpressionParser("Hello World, is it true ${body} > 3?");
+        Expression exp = parser.parseExpression();
+
+        assertEquals("Hello World, is it true World > 3?", exp.evaluate(exchange, String.class));
+        // the literal text is a single token up till the function, and after the function
+        assertEquals(5, parser.tokens.size());
+        assertEquals("Hello World, is it true ", parser.tokens.getText(0));
+        assertEquals(" > 3?", parser.tokens.getText(4));
+    }
+
     public void testSimpleSingleQuote() throws Exception {
         SimpleExpressionParser parser = new SimpleExpressionParser("'Hello'");
         Expression exp = parser.parseExpression();
@@ -109,4 +109,55 @@ public class Simple2ParserPredicateInvalidTest extends ExchangeTestSupport {
         }
     }
 
+    public void testSimpleInvalidRange() throws Exception {
+        // the range is validated when parsing, so the exchange is not needed
+        SimplePredicateParser parser = new SimplePredicateParser("${header.high} range '100.200'");
+        try {
+            parser.parsePredicate();
+            fail("Should thrown exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(21, e.getIndex());
+        }
+    }
+
+    public void testSimpleGroupNoEnd() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${body} == 'foo' && (${header.high} == true");
+        try {
+            parser.parsePredicate();
+            fail("Should thrown exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(20, e.getIndex());
+        }
+    }
+
+    public void testSimpleGroupNoStart() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${body} == 'foo' && ${header.high} == true)");
+        try {
+            parser.parsePredicate();
+            fail("Should thrown exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(42, e.getIndex());
+        }
+    }
+
+    public void testSimpleGroupEmpty() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${body} == 'foo' && ()");
+        try {
+            parser.parsePredicate();
+            fail("Should thrown exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(20, e.getIndex());
+        }
+    }
+
+    public void testSimpleGroupNoRightHandSide() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("(${body} == 'foo' && ) || ${header.high} == true");
+        try {
+            parser.parsePredicate();
+            fail("Should thrown exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(21, e.getIndex());
+        }
+    }
+
 }
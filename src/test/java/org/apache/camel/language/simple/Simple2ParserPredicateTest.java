@@ -178,4 +178,177 @@ public class Simple2ParserPredicateTest extends ExchangeTestSupport {
         assertTrue("Should match", pre.matches(exchange));
     }
 
+    public void testSimpleIn() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append("code").append(i);
+        }
+
+        SimplePredicateParser parser = new SimplePredicateParser("${header.code} in '" + sb + "'");
+        Predicate pre = parser.parsePredicate();
+
+        exchange.getIn().setHeader("code", "code123");
+        assertTrue("Should match", pre.matches(exchange));
+        exchange.getIn().setHeader("code", "code500");
+        assertFalse("Should not match", pre.matches(exchange));
+        exchange.getIn().setHeader("code", null);
+        assertFalse("Should not match", pre.matches(exchange));
+    }
+
+    public void testSimpleInNumeric() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${header.amount} in '100,200,300'");
+        Predicate pre = parser.parsePredicate();
+
+        exchange.getIn().setHeader("amount", 200);
+        assertTrue("Should match", pre.matches(exchange));
+        // a double is converted to 200.0 as a string, so the values must be converted to a double
+        exchange.getIn().setHeader("amount", 200.0d);
+        assertTrue("Should match", pre.matches(exchange));
+        exchange.getIn().setHeader("amount", 201L);
+        assertFalse("Should not match", pre.matches(exchange));
+
+        parser = new SimplePredicateParser("${header.amount} not in '100,200,300'");
+        pre = parser.parsePredicate();
+        assertTrue("Should match", pre.matches(exchange));
+    }
+
+    public void testSimpleRange() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${header.amount} range '100..200'");
+        Predicate pre = parser.parsePredicate();
+
+        exchange.getIn().setHeader("amount", 150);
+        assertTrue("Should match", pre.matches(exchange));
+        exchange.getIn().setHeader("amount", 200L);
+        assertTrue("Should match", pre.matches(exchange));
+        exchange.getIn().setHeader("amount", "150");
+        assertTrue("Should match", pre.matches(exchange));
+        // the text is compared as a number, and not as text
+        exchange.getIn().setHeader("amount", "20");
+        assertFalse("Should not match", pre.matches(exchange));
+        exchange.getIn().setHeader("amount", "0150");
+        assertTrue("Should match", pre.matches(exchange));
+        exchange.getIn().setHeader("amount", "-150");
+        assertFalse("Should not match", pre.matches(exchange));
+        exchange.getIn().setHeader("amount", "150.5");
+        assertTrue("Should match", pre.matches(exchange));
+        exchange.getIn().setHeader("amount", 1000);
+        assertFalse("Should not match", pre.matches(exchange));
+        exchange.getIn().setHeader("amount", null);
+        assertFalse("Should not match", pre.matches(exchange));
+    }
+
+    public void testSimpleIs() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${body} is 'java.lang.String'");
+        Predicate pre = parser.parsePredicate();
+
+        exchange.getIn().setBody("Hello");
+        assertTrue("Should match", pre.matches(exchange));
+        exchange.getIn().setBody(123);
+        assertFalse("Should not match", pre.matches(exchange));
+    }
+
+    public void testSimpleIsFunction() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${body} is ${header.type}");
+        Predicate pre = parser.parsePredicate();
+
+        exchange.getIn().setBody(123);
+        exchange.getIn().setHeader("type", "java.lang.Integer");
+        assertTrue("Should match", pre.matches(exchange));
+        exchange.getIn().setHeader("type", "java.lang.String");
+        assertFalse("Should not match", pre.matches(exchange));
+        exchange.getIn().setHeader("type", "java.lang.Integer");
+        assertTrue("Should match", pre.matches(exchange));
+    }
+
+    public void testSimpleLogicalShortCircuit() throws Exception {
+        exchange.getIn().setHeader("high", true);
+
+        // the is operator fails if evaluated as there is no type header
+        SimplePredicateParser parser = new SimplePredicateParser("${header.high} == false && ${body} is ${header.type}");
+        Predicate pre = parser.parsePredicate();
+        assertFalse("Should not match", pre.matches(exchange));
+
+        parser = new SimplePredicateParser("${header.high} == true || ${body} is ${header.type}");
+        pre = parser.parsePredicate();
+        assertTrue("Should match", pre.matches(exchange));
+    }
+
+    public void testSimpleLogicalPrecedence() throws Exception {
+        exchange.getIn().setBody("foo");
+        exchange.getIn().setHeader("high", true);
+
+        // && binds tighter than ||, so this is true || (false && false)
+        SimplePredicateParser parser = new SimplePredicateParser("${body} == 'foo' || ${header.high} == false && ${body} == 'bar'");
+        Predicate pre = parser.parsePredicate();
+        assertTrue("Should match", pre.matches(exchange));
+
+        // and this is (false && true) || true
+        parser = new SimplePredicateParser("${body} == 'bar' && ${header.high} == true || ${body} == 'foo'");
+        pre = parser.parsePredicate();
+        assertTrue("Should match", pre.matches(exchange));
+
+        // and this is (false && true) || (true && false)
+        parser = new SimplePredicateParser("${body} == 'bar' && ${header.high} == true || ${body} == 'foo' && ${header.high} == false");
+        pre = parser.parsePredicate();
+        assertFalse("Should not match", pre.matches(exchange));
+    }
+
+    public void testSimpleLogicalGroup() throws Exception {
+        exchange.getIn().setBody("Hello World");
+        exchange.getIn().setHeader("type", "A");
+
+        // the group is evaluated as a whole, so this is true && (false || true)
+        SimplePredicateParser parser = new SimplePredicateParser("${header.type} == 'A' && (${body} regex '^Bye.*' || ${body} contains 'World')");
+        Predicate pre = parser.parsePredicate();
+        assertTrue("Should match", pre.matches(exchange));
+
+        exchange.getIn().setHeader("type", "B");
+        assertFalse("Should not match", pre.matches(exchange));
+
+        // without the group && binds tighter, so this is (false && false) || true
+        parser = new SimplePredicateParser("${header.type} == 'A' && ${body} regex '^Bye.*' || ${body} contains 'World'");
+        pre = parser.parsePredicate();
+        assertTrue("Should match", pre.matches(exchange));
+
+        // and with the group this is false && (false || true)
+        parser = new SimplePredicateParser("${header.type} == 'A' && (${body} regex '^Bye.*' || ${body} contains 'World')");
+        pre = parser.parsePredicate();
+        assertFalse("Should not match", pre.matches(exchange));
+    }
+
+    public void testSimpleLogicalGroupNested() throws Exception {
+        exchange.getIn().setBody("foo");
+        exchange.getIn().setHeader("high", true);
+        exchange.getIn().setHeader("amount", 150);
+
+        SimplePredicateParser parser = new SimplePredicateParser(
+                "(${body} == 'bar' || (${header.high} == true && ${header.amount} range '100..200')) && ( ${body} != 'baz' )");
+        Predicate pre = parser.parsePredicate();
+        assertTrue("Should match", pre.matches(exchange));
+
+        exchange.getIn().setHeader("amount", 250);
+        assertFalse("Should not match", pre.matches(exchange));
+    }
+
+    public void testSimpleLogicalGroupShortCircuit() throws Exception {
+        exchange.getIn().setHeader("high", true);
+
+        // the is operator fails if evaluated as there is no type header
+        SimplePredicateParser parser = new SimplePredicateParser("${header.high} == false && (${body} is ${header.type} || ${body} == null)");
+        Predicate pre = parser.parsePredicate();
+        assertFalse("Should not match", pre.matches(exchange));
+    }
+
+    public void testSimpleGroupLiteral() throws Exception {
+        exchange.getIn().setBody("(foo)");
+
+        // parenthesis in quoted text and functions are literal
+        SimplePredicateParser parser = new SimplePredicateParser("${bodyAs(String)} == '(foo)'");
+        Predicate pre = parser.parsePredicate();
+        assertTrue("Should match", pre.matches(exchange));
+    }
+
 }
@@ -36,5 +36,46 @@ public class Simple2ParserRegexpPredicateTest extends ExchangeTestSupport {
         assertTrue(pre.matches(exchange));
     }
 
+    @Test
+    public void testSimpleRegexpFunction() throws Exception {
+        exchange.getIn().setBody("12.34.5678");
+        exchange.getIn().setHeader("pattern", "^\\d{2}\\.\\d{2}\\.\\d{4}$");
+
+        SimplePredicateParser parser = new SimplePredicateParser("${body} regex ${header.pattern}");
+        Predicate pre = parser.parsePredicate();
+
+        assertTrue(pre.matches(exchange));
+        // evaluate again to use the cached pattern
+        assertTrue(pre.matches(exchange));
+
+        exchange.getIn().setHeader("pattern", "^\\d{3}$");
+        assertFalse(pre.matches(exchange));
+    }
+
+    @Test
+    public void testSimpleRegexpFunctionManyPatterns() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${body} regex ${header.pattern}");
+        Predicate pre = parser.parsePredicate();
+
+        // more patterns than is kept in the cache
+        for (int i = 0; i < 250; i++) {
+            exchange.getIn().setBody("a" + i);
+            exchange.getIn().setHeader("pattern", "^a" + i + "$");
+            assertTrue(pre.matches(exchange));
+            exchange.getIn().setHeader("pattern", "^b" + i + "$");
+            assertFalse(pre.matches(exchange));
+        }
+    }
+
+    @Test
+    public void testSimpleInvalidRegexp() throws Exception {
+        SimplePredicateParser parser = new SimplePredicateParser("${body} regex '[0-9'");
+        try {
+            parser.parsePredicate();
+            fail("Should thrown exception");
+        } catch (SimpleIllegalSyntaxException e) {
+            assertEquals(14, e.getIndex());
+        }
+    }
 
 }
@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import org.apache.camel.Expression;
+import org.apache.camel.test.junit4.LanguageTestSupport;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class Simple2TemplateTest extends LanguageTestSupport {
+
+    private Simple2Language language = new Simple2Language();
+
+    @Override
+    protected String getLanguageName() {
+        return "simple2";
+    }
+
+    @Test
+    public void testRenderWriter() throws Exception {
+        SimpleTemplate template = language.createTemplate("Hello ${header.foo} how are you ${header.unknown}${header.bar}?");
+
+        StringWriter writer = new StringWriter();
+        template.render(exchange, writer);
+        assertEquals("Hello abc how are you 123?", writer.toString());
+        assertEquals("Hello abc how are you 123?", template.evaluate(exchange, String.class));
+        assertEquals("Hello ${header.foo} how are you ${header.unknown}${header.bar}?", template.toString());
+    }
+
+    @Test
+    public void testRenderOutputStream() throws Exception {
+        exchange.getIn().setBody("Gr\u00fc\u00dfe");
+        SimpleTemplate template = language.createTemplate("Sch\u00f6ne ${body}!");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        template.render(exchange, out, Charset.forName("UTF-8"));
+        assertEquals("Sch\u00f6ne Gr\u00fc\u00dfe!", new String(out.toByteArray(), "UTF-8"));
+
+        out = new ByteArrayOutputStream();
+        template.render(exchange, out, Charset.forName("ISO-8859-1"));
+        assertEquals("Sch\u00f6ne Gr\u00fc\u00dfe!", new String(out.toByteArray(), "ISO-8859-1"));
+    }
+
+    @Test
+    public void testRenderLarge() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            body.append("0123456789");
+        }
+        exchange.getIn().setBody(body.toString());
+        SimpleTemplate template = language.createTemplate("<payload id='${header.bar}'>${body}</payload>");
+
+        // count the characters without keeping them
+        final int[] count = new int[1];
+        Writer writer = new Writer() {
+            public void write(char[] cbuf, int off, int len) {
+                count[0] += len;
+            }
+
+            public void flush() {
+            }
+
+            public void close() {
+            }
+        };
+        template.render(exchange, writer);
+        assertEquals(1000000 + "<payload id='123'></payload>".length(), count[0]);
+    }
+
+    @Test
+    public void testTemplateSingle() throws Exception {
+        // a single function or text is also a template
+        assertEquals("abc", render(language.createTemplate("${header.foo}")));
+        assertEquals("Hello World", render(language.createTemplate("Hello World")));
+        assertEquals("", render(language.createTemplate("")));
+        // the old syntax is also supported
+        assertEquals("abc", render(language.createTemplate("in.header.foo")));
+    }
+
+    @Test
+    public void testExpressionIsTemplate() throws Exception {
+        Expression expression = language.createExpression("Hello ${header.foo}");
+        assertIsInstanceOf(SimpleTemplate.class, expression);
+        assertEquals("Hello abc", expression.evaluate(exchange, String.class));
+
+        // the same template is cached
+        assertSame(language.createTemplate("Hello ${header.foo}"), language.createTemplate("Hello ${header.foo}"));
+    }
+
+    @Test
+    public void testEvaluateExactLength() throws Exception {
+        SimpleTemplate template = language.createTemplate("Hello ${body} and ${header.foo}!");
+
+        exchange.getIn().setBody("World");
+        assertEquals("Hello World and abc!", template.evaluate(exchange, String.class));
+
+        // a large value does not affect the following evaluations
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            large.append('x');
+        }
+        exchange.getIn().setBody(large.toString());
+        assertEquals("Hello " + large + " and abc!", template.evaluate(exchange, String.class));
+
+        exchange.getIn().setBody("");
+        assertEquals("Hello  and abc!", template.evaluate(exchange, String.class));
+
+        // and the result can be converted to another type
+        exchange.getIn().setBody(null);
+        assertEquals("Hello  and abc!", new String(template.evaluate(exchange, byte[].class)));
+    }
+
+    private String render(SimpleTemplate template) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        template.render(exchange, sb);
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.camel.language.simple;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ */
+public class SimpleTokenizerTest extends TestCase {
+
+    public void testKnownTokens() throws Exception {
+        assertToken(TokenType.functionStart, "${", "${body}", 0);
+        assertToken(TokenType.functionStart, "$simple{", "$simple{body}", 0);
+        assertToken(TokenType.functionEnd, "}", "${body}", 6);
+        assertToken(TokenType.binaryOperator, ">=", "${body} >= 3", 8);
+        assertToken(TokenType.binaryOperator, ">", "${body} > 3", 8);
+        assertToken(TokenType.binaryOperator, "not is", "${body} not is 'x'", 8);
+        assertToken(TokenType.binaryOperator, "not range", "${body} not range '1..5'", 8);
+        assertToken(TokenType.logicalOperator, "&&", "a && b", 2);
+        assertToken(TokenType.booleanValue, "true", "true", 0);
+        assertToken(TokenType.character, "$", "$", 0);
+        assertToken(TokenType.character, "no", "no", 0);
+    }
+
+    public void testCharacterRun() throws Exception {
+        assertToken(TokenType.character, "Hello", "Hello World", 0);
+        assertToken(TokenType.whiteSpace, " ", "Hello World", 5);
+        // the r could be the start of the regex operator
+        assertToken(TokenType.character, "Wo", "Hello World", 6);
+        assertToken(TokenType.character, "xyz", "xyz123", 0);
+        assertToken(TokenType.character, "$xyz", "$xyz${body}", 0);
+        assertToken(TokenType.functionStart, "${", "$xyz${body}", 4);
+        // inside a function only the function end is accepted
+        SimpleToken token = SimpleTokenizer.nextToken("in.header.foo}", 0, TokenType.functionEnd, TokenType.eol);
+        assertEquals("in.header.foo", token.getText());
+        assertEquals(13, token.getLength());
+    }
+
+    public void testFilter() throws Exception {
+        SimpleToken token = SimpleTokenizer.nextToken("in ${body}", 0, TokenType.functionStart, TokenType.functionEnd);
+        assertEquals(TokenType.character, token.getType().getType());
+        assertEquals("in ", token.getText());
+
+        token = SimpleTokenizer.nextToken("${body}", 0, TokenType.functionStart);
+        assertEquals(TokenType.functionStart, token.getType().getType());
+    }
+
+    public void testChangeFunctionTokens() throws Exception {
+        try {
+            Simple2Language.changeFunctionStartToken("[[");
+            Simple2Language.changeFunctionEndToken("]]");
+
+            assertToken(TokenType.functionStart, "[[", "[[body]]", 0);
+            assertToken(TokenType.functionEnd, "]]", "[[body]]", 6);
+            assertToken(TokenType.character, "${body}", "${body}", 0);
+        } finally {
+            Simple2Language.changeFunctionStartToken("${", "$simple{");
+            Simple2Language.changeFunctionEndToken("}");
+        }
+
+        assertToken(TokenType.functionStart, "${", "${body}", 0);
+    }
+
+    public void testTokenStream() throws Exception {
+        String expression = "Hello 123 ${body}";
+        SimpleTokenStream tokens = new SimpleTokenStream(expression);
+        int index = 0;
+        while (index < expression.length()) {
+            index += SimpleTokenizer.nextToken(expression, index, tokens, null);
+        }
+        assertEquals(7, tokens.size());
+
+        // the text of the literal text and numbers is taken from the input
+        assertNull(tokens.getType(0).getValue());
+        assertEquals("Hello", tokens.getText(0));
+        assertEquals(TokenType.numericValue, tokens.getType(2).getType());
+        assertEquals("123", tokens.getText(2));
+        assertEquals(6, tokens.getIndex(2));
+        assertEquals(3, tokens.getLength(2));
+
+        SimpleToken token = tokens.createToken(2);
+        assertEquals(TokenType.numericValue, token.getType().getType());
+        assertEquals("123", token.getText());
+        assertEquals(6, token.getIndex());
+        assertEquals(3, token.getLength());
+
+        // the known tokens is the shared types
+        assertSame(tokens.getType(1), tokens.getType(3));
+        assertEquals("${", tokens.getText(4));
+        assertEquals("body", tokens.getText(5));
+        assertEquals("}", tokens.getText(6));
+    }
+
+    private static void assertToken(TokenType type, String text, String expression, int index) {
+        SimpleToken token = SimpleTokenizer.nextToken(expression, index);
+        assertEquals(type, token.getType().getType());
+        assertEquals(text, token.getText());
+        assertEquals(index, token.getIndex());
+    }
+
+}